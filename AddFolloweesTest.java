@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/** Tests the addFollowees methods of the Network class, against one addFollowee call per follow. */
+public class AddFolloweesTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the addFollowees methods...\n");
+
+        System.out.println("...Creating Alex, Orly, Idan and Keren, where Alex already follows Idan...");
+        Network net = new Network(10, 3);
+        for (String name : new String[] {"Alex", "Orly", "Idan", "Keren"}) {
+            net.addUser(name);
+        }
+        net.addFollowee("Alex", "Idan");
+
+        System.out.println("\n...Making Alex follow Orly, orly, Alex, Gil, Idan and Keren in one batch...");
+        List<String> followees = Arrays.asList("Orly", "orly", "Alex", "Gil", "Idan", "Keren");
+        boolean[] results = new boolean[followees.size()];
+        int added = net.addFollowees("Alex", followees, results);
+        System.out.println("Results: " + Arrays.toString(results));
+        System.out.println("Follows added: " + added);
+        System.out.println(net.getUser("Alex"));
+        System.out.println("The follows are indexed: " + (net.followerCount("Keren") == 1 && net.getFollowCount() == 3));
+
+        System.out.println("\n...Adding Neta, and making Alex, whose list is full, follow Neta...");
+        net.addUser("Neta");
+        added = net.addFollowees("Alex", Arrays.asList("Neta"), results);
+        System.out.println("Nothing is added: " + (added == 0 && !results[0]));
+        System.out.println("Nothing is added for an unknown follower: " + (net.addFollowees("Gil", followees, null) == 0));
+
+        System.out.println("\n...Passing a results array that is too short...");
+        boolean rejected = false;
+        try {
+            net.addFollowees("Orly", followees, new boolean[2]);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        System.out.println("An IllegalArgumentException is thrown: " + rejected);
+        System.out.println("Nothing was added: " + (net.getUser("Orly").getfCount() == 0));
+
+        System.out.println("\n...Making Orly and Idan follow several users, from a map...");
+        Map<String, List<String>> batch = new LinkedHashMap<>();
+        batch.put("Orly", Arrays.asList("Alex", "Keren"));
+        batch.put("Gil", Arrays.asList("Alex"));
+        batch.put("Idan", Arrays.asList("Orly", "Idan"));
+        results = new boolean[5];
+        added = net.addFollowees(batch, results);
+        // In the order of the entries of the map, and then of their followees.
+        System.out.println("Results: " + Arrays.toString(results));
+        System.out.println("Follows added: " + added);
+        System.out.println("Alex and Orly are friends: " + net.areFriends("Alex", "Orly"));
+
+        System.out.println("\n...Comparing random batches with one addFollowee call per follow...");
+        Random random = new Random(48);
+        boolean same = true;
+        for (int round = 0; round < 50; round++) {
+            int users = 100;
+            Network batched = new Network(users, 20);
+            Network single = new Network(users, 20);
+            for (int i = 0; i < users; i++) {
+                batched.addUser(GraphGenerator.name(i));
+                single.addUser(GraphGenerator.name(i));
+            }
+            for (int step = 0; step < 30; step++) {
+                String follower = GraphGenerator.name(random.nextInt(users));
+                List<String> names = new ArrayList<>();
+                int size = random.nextInt(15);
+                for (int i = 0; i < size; i++) {
+                    // A few unknown names, and duplicates in all cases.
+                    int id = random.nextInt(users + 10);
+                    String name = (id < users) ? GraphGenerator.name(id) : "Unknown" + id;
+                    names.add(random.nextBoolean() ? name : name.toLowerCase());
+                }
+                boolean[] batchResults = new boolean[size];
+                int count = batched.addFollowees(follower, names, batchResults);
+                int expected = 0;
+                for (int i = 0; i < size; i++) {
+                    boolean result = single.addFollowee(follower, names.get(i));
+                    same &= batchResults[i] == result;
+                    if (result) {
+                        expected++;
+                    }
+                }
+                same &= count == expected;
+            }
+            same &= batched.toString().equals(single.toString());
+            same &= batched.getFollowCount() == single.getFollowCount();
+            same &= batched.getFriendPairCount() == single.getFriendPairCount();
+            for (int i = 0; i < users; i++) {
+                String name = GraphGenerator.name(i);
+                same &= Arrays.equals(batched.getFollowers(name), single.getFollowers(name));
+                same &= Arrays.equals(batched.friendsOf(name), single.friendsOf(name));
+            }
+        }
+        System.out.println("Batches give the same results and the same network: " + same);
+
+        System.out.println("\nAll addFollowees tests completed.");
+    }
+}
@@ -0,0 +1,236 @@
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a JSON-lines file of requests (see the Request class) against a network, and streams
+ * one JSON result line per request, in the order of the requests.
+ *
+ * Consecutive read-only requests are collected into a batch, and the batch is run in parallel.
+ * A request that changes the network waits for the batch before it to finish, and runs alone,
+ * so the changes are applied in order, and every query sees exactly the changes before it.
+ * A line that cannot be parsed, or whose request fails, gets the error line
+ * {"line":N,"error":"..."} in place of its result, and the lines after it still run.
+ *
+ * Reading, processing and writing run on separate threads that are connected by bounded
+ * queues, and results are written in large chunks. So memory use does not depend on the size
+ * of the input.
+ *
+ * Usage: java BatchProcessor [file] [threads] [capacity=100000]
+ * Reads from standard input if no file (or "-") is given, and writes to standard output.
+ */
+public class BatchProcessor {
+
+    /** Put after the last line, and after the last chunk of output. */
+    private static final Object END = new Object();
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_SIZE = 8 * BATCH_SIZE;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final Network network;
+    private final int threads;
+
+    public BatchProcessor(Network network, int threads) {
+        this.network = network;
+        this.threads = Math.max(1, threads);
+    }
+
+    /** Processes all the requests of the input, and writes their results to the output. Returns the number of requests. */
+    public long process(InputStream in, OutputStream out) throws IOException, InterruptedException {
+        BlockingQueue<Object> lines = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        BlockingQueue<Object> chunks = new ArrayBlockingQueue<>(4);
+        // The first failure of the reader or the writer thread.
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), CHUNK_SIZE)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    lines.put(line);
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                putQuietly(lines, END);
+            }
+        }, "batch-reader");
+
+        Thread writer = new Thread(() -> {
+            Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            try {
+                Object chunk;
+                // Keeps taking chunks after a failure, so that the processing thread never blocks.
+                while ((chunk = chunks.take()) != END) {
+                    if (failure.get() == null) {
+                        write(w, (String) chunk, failure);
+                    }
+                }
+                if (failure.get() == null) {
+                    w.flush();
+                }
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "batch-writer");
+
+        reader.setDaemon(true);
+        reader.start();
+        writer.start();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long count = 0;
+        boolean done = false;
+        try {
+            StringBuilder output = new StringBuilder(2 * CHUNK_SIZE);
+            Request[] batch = new Request[BATCH_SIZE];
+            long[] lineNumbers = new long[BATCH_SIZE];
+            String[] results = new String[BATCH_SIZE];
+            int batchSize = 0;
+            Object next;
+            while ((next = lines.take()) != END) {
+                String line = (String) next;
+                count++;
+                Request request;
+                try {
+                    request = Request.parse(line);
+                } catch (IllegalArgumentException e) {
+                    batchSize = runBatch(pool, batch, lineNumbers, results, batchSize, output);
+                    output.append(errorLine(count, e.getMessage())).append('\n');
+                    continue;
+                }
+                if (request.getOp().isReadOnly()) {
+                    lineNumbers[batchSize] = count;
+                    batch[batchSize++] = request;
+                    if (batchSize == BATCH_SIZE) {
+                        batchSize = runBatch(pool, batch, lineNumbers, results, batchSize, output);
+                    }
+                } else {
+                    batchSize = runBatch(pool, batch, lineNumbers, results, batchSize, output);
+                    output.append(run(request, count)).append('\n');
+                }
+                if (output.length() >= CHUNK_SIZE) {
+                    chunks.put(output.toString());
+                    output.setLength(0);
+                }
+            }
+            runBatch(pool, batch, lineNumbers, results, batchSize, output);
+            chunks.put(output.toString());
+            done = true;
+        } finally {
+            pool.shutdownNow();
+            if (!done) {
+                // Unblocks the reader if it waits for room in the queue of lines.
+                reader.interrupt();
+            }
+            putQuietly(chunks, END);
+            writer.join();
+        }
+        // The reader put END, so it is about to finish.
+        reader.join();
+        Throwable t = failure.get();
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t != null) {
+            throw new RuntimeException(t);
+        }
+        return count;
+    }
+
+    /**
+     * Runs the given batch of read-only requests in parallel, each thread on its own slice,
+     * and appends their results to the output in order. Returns 0, the new size of the batch.
+     */
+    private int runBatch(ExecutorService pool, Request[] batch, long[] lineNumbers, String[] results, int size,
+            StringBuilder output) throws InterruptedException {
+        if (size == 0) {
+            return 0;
+        }
+        int slices = Math.min(threads, size);
+        if (slices == 1) {
+            runSlice(batch, lineNumbers, results, 0, size);
+        } else {
+            Future<?>[] futures = new Future<?>[slices];
+            for (int s = 0; s < slices; s++) {
+                int from = (int) ((long) size * s / slices);
+                int to = (int) ((long) size * (s + 1) / slices);
+                futures[s] = pool.submit(() -> runSlice(batch, lineNumbers, results, from, to));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            output.append(results[i]).append('\n');
+            batch[i] = null;
+            results[i] = null;
+        }
+        return 0;
+    }
+
+    private void runSlice(Request[] batch, long[] lineNumbers, String[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = run(batch[i], lineNumbers[i]);
+        }
+    }
+
+    /** Runs the request of the given line, and returns its result line, or its error line if it failed. */
+    private String run(Request request, long line) {
+        try {
+            return request.resultLine(request.apply(network));
+        } catch (RuntimeException e) {
+            return errorLine(line, e.toString());
+        }
+    }
+
+    /** Returns the line that reports an error in the given line of the input. */
+    private static String errorLine(long line, String message) {
+        StringBuilder sb = new StringBuilder("{\"line\":").append(line).append(",\"error\":");
+        return Json.quote(sb, message).append('}').toString();
+    }
+
+    private static void write(Writer w, String chunk, AtomicReference<Throwable> failure) {
+        try {
+            w.write(chunk);
+        } catch (IOException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private static void putQuietly(BlockingQueue<Object> queue, Object value) {
+        try {
+            queue.put(value);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String fileName = (args.length > 0) ? args[0] : "-";
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int capacity = (args.length > 2) ? Integer.parseInt(args[2]) : 100000;
+        InputStream in = fileName.equals("-") ? System.in : new FileInputStream(fileName);
+        long start = System.nanoTime();
+        long count = new BatchProcessor(new Network(capacity), threads).process(in, System.out);
+        System.err.println("Processed " + count + " requests in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
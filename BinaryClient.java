@@ -0,0 +1,106 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * A client for the BinaryServer. Each method call is one round trip, except for send and
+ * receive, which let a caller pipeline: send many requests, flush, and then receive their
+ * results in the same order. A client is not thread-safe: use one per thread.
+ */
+public class BinaryClient implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private int pending;
+
+    /** Connects to the server on the given host and port. */
+    public BinaryClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+    }
+
+    /** Buffers one request. It is sent when the buffer fills up, or on flush or receive. */
+    public void send(Request.Op op, String name, String followee) throws IOException {
+        BinaryProtocol.writeRequest(out, op, name, followee);
+        pending++;
+    }
+
+    /** Sends all the buffered requests. */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /** Returns the number of requests that were sent and whose results were not received yet. */
+    public int getPending() {
+        return this.pending;
+    }
+
+    /** Receives the result of the oldest request whose result was not received yet. */
+    public Object receive() throws IOException {
+        if (pending == 0) {
+            throw new IllegalStateException("no pending requests");
+        }
+        out.flush();
+        pending--;
+        return BinaryProtocol.readResult(in);
+    }
+
+    /** Sends one request, and waits for its result. */
+    public Object call(Request.Op op, String name, String followee) throws IOException {
+        if (pending > 0) {
+            throw new IllegalStateException(pending + " pipelined results were not received");
+        }
+        send(op, name, followee);
+        return receive();
+    }
+
+    public boolean follows(String name, String followee) throws IOException {
+        return (Boolean) call(Request.Op.FOLLOWS, name, followee);
+    }
+
+    public boolean isFriendOf(String name, String other) throws IOException {
+        return (Boolean) call(Request.Op.IS_FRIEND_OF, name, other);
+    }
+
+    public boolean addUser(String name) throws IOException {
+        return (Boolean) call(Request.Op.ADD_USER, name, null);
+    }
+
+    public boolean addFollowee(String name, String followee) throws IOException {
+        return (Boolean) call(Request.Op.ADD_FOLLOWEE, name, followee);
+    }
+
+    public boolean removeUser(String name) throws IOException {
+        return (Boolean) call(Request.Op.REMOVE_USER, name, null);
+    }
+
+    public String recommendWhoToFollow(String name) throws IOException {
+        return (String) call(Request.Op.RECOMMEND_WHO_TO_FOLLOW, name, null);
+    }
+
+    public String[] shortestPath(String from, String to) throws IOException {
+        return (String[]) call(Request.Op.SHORTEST_PATH, from, to);
+    }
+
+    public String mostPopularUser() throws IOException {
+        return (String) call(Request.Op.MOST_POPULAR_USER, null, null);
+    }
+
+    public String mostInfluentialUser() throws IOException {
+        return (String) call(Request.Op.MOST_INFLUENTIAL_USER, null, null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * A compact, length-prefixed binary encoding of requests and results, for clients that make
+ * many small queries. Every message is a frame: a 4-byte big-endian length, followed by that
+ * many bytes of payload.
+ *
+ * A request payload is a 1-byte operation code (see OPS), then the "name" and "followee"
+ * strings, each as a 1-byte presence flag followed by a string in DataOutput.writeUTF form.
+ *
+ * A result payload is a 1-byte type, followed by a value that depends on the type:
+ * NULL, FALSE and TRUE have no value; STRING has one string; STRINGS has a 4-byte count
+ * followed by that many strings; ERROR has a message string.
+ *
+ * The server reads requests and writes results in order, so a client may send many requests
+ * before it reads their results (pipelining), and match them up by position.
+ */
+public class BinaryProtocol {
+
+    /** The operation codes: the code of an operation is its index in this array. New operations are added at the end. */
+    public static final Request.Op[] OPS = {
+        Request.Op.ADD_USER,
+        Request.Op.ADD_FOLLOWEE,
+        Request.Op.REMOVE_FOLLOWEE,
+        Request.Op.GET_USER,
+        Request.Op.GET_FOLLOWEES,
+        Request.Op.GET_FOLLOWERS,
+        Request.Op.FOLLOWS,
+        Request.Op.IS_FRIEND_OF,
+        Request.Op.RECOMMEND_WHO_TO_FOLLOW,
+        Request.Op.MOST_POPULAR_USER,
+        Request.Op.GET_FRIENDS,
+        Request.Op.MUTUAL_FOLLOWEES,
+        Request.Op.SHORTEST_PATH,
+        Request.Op.MOST_INFLUENTIAL_USER,
+        Request.Op.REMOVE_USER,
+    };
+
+    public static final byte NULL = 0;
+    public static final byte FALSE = 1;
+    public static final byte TRUE = 2;
+    public static final byte STRING = 3;
+    public static final byte STRINGS = 4;
+    public static final byte ERROR = 5;
+
+    /** The largest frame that is accepted, to protect against corrupt lengths. */
+    public static final int MAX_FRAME = 16 << 20;
+
+    private BinaryProtocol() {
+    }
+
+    /** Returns the code of the given operation, or -1 if it has none. */
+    public static int code(Request.Op op) {
+        for (int i = 0; i < OPS.length; i++) {
+            if (OPS[i] == op) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Writes one request frame. The frame is buffered by the stream; the caller decides when to flush. */
+    public static void writeRequest(DataOutputStream out, Request.Op op, String name, String followee) throws IOException {
+        int length = 1 + stringLength(name) + stringLength(followee);
+        out.writeInt(length);
+        out.writeByte(code(op));
+        writeOptional(out, name);
+        writeOptional(out, followee);
+    }
+
+    /** Reads one request frame. Returns null at the end of the stream. Throws IOException if the frame is malformed. */
+    public static Request readRequest(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 3 || length > MAX_FRAME) {
+            throw new IOException("bad frame length " + length);
+        }
+        int code = in.readUnsignedByte();
+        String name = readOptional(in);
+        String followee = readOptional(in);
+        if (code >= OPS.length) {
+            throw new IOException("unknown operation code " + code);
+        }
+        if (length != 1 + stringLength(name) + stringLength(followee)) {
+            throw new IOException("frame length " + length + " does not match its content");
+        }
+        return new Request(OPS[code], null, name, followee);
+    }
+
+    /** Writes one result frame, for a result of Request.apply. */
+    public static void writeResult(DataOutputStream out, Object result) throws IOException {
+        if (result == null) {
+            out.writeInt(1);
+            out.writeByte(NULL);
+        } else if (result instanceof Boolean) {
+            out.writeInt(1);
+            out.writeByte((Boolean) result ? TRUE : FALSE);
+        } else if (result instanceof String[]) {
+            String[] strings = (String[]) result;
+            int length = 1 + 4;
+            for (String s : strings) {
+                length += utfLength(s);
+            }
+            out.writeInt(length);
+            out.writeByte(STRINGS);
+            out.writeInt(strings.length);
+            for (String s : strings) {
+                out.writeUTF(s);
+            }
+        } else {
+            writeString(out, STRING, result.toString());
+        }
+    }
+
+    /** Writes one error frame with the given message. */
+    public static void writeError(DataOutputStream out, String message) throws IOException {
+        writeString(out, ERROR, String.valueOf(message));
+    }
+
+    /**
+     * Reads one result frame, and returns the result as Request.apply would: null, a Boolean,
+     * a String or a String array. Throws IOException if the server reported an error.
+     */
+    public static Object readResult(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME) {
+            throw new IOException("bad frame length " + length);
+        }
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case STRING:
+                return in.readUTF();
+            case STRINGS: {
+                String[] strings = new String[in.readInt()];
+                for (int i = 0; i < strings.length; i++) {
+                    strings[i] = in.readUTF();
+                }
+                return strings;
+            }
+            case ERROR:
+                throw new IOException("server error: " + in.readUTF());
+            default:
+                throw new IOException("unknown result type " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, byte type, String s) throws IOException {
+        out.writeInt(1 + utfLength(s));
+        out.writeByte(type);
+        out.writeUTF(s);
+    }
+
+    private static void writeOptional(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readOptional(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static int stringLength(String s) {
+        return 1 + ((s == null) ? 0 : utfLength(s));
+    }
+
+    /** Returns the number of bytes that DataOutput.writeUTF writes for the given string. */
+    private static int utfLength(String s) {
+        int length = 2;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length += 1;
+            } else if (c <= 0x07FF) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Serves a network over TCP, using the binary protocol of the BinaryProtocol class.
+ * Every connection is served by its own virtual thread, which reads request frames and writes
+ * result frames in order. Results are buffered, and are flushed only when no more requests
+ * are waiting to be read, so a pipelined burst of requests is answered with few writes.
+ *
+ * Usage: java BinaryServer [port=9090] [capacity=100000]
+ */
+public class BinaryServer {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final SharedNetwork network;
+    private final ServerSocket serverSocket;
+    private Thread acceptor;
+
+    /** Creates a server for the given network on the given port (0 picks a free port). The server is not started. */
+    public BinaryServer(SharedNetwork network, int port) throws IOException {
+        this.network = network;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(port), 4096);
+    }
+
+    /** Starts accepting connections on a background thread. */
+    public void start() {
+        acceptor = Thread.ofPlatform().name("binary-acceptor").daemon(true).start(this::acceptLoop);
+    }
+
+    /** Stops accepting connections. Open connections are served until their clients close them. */
+    public void stop() throws IOException {
+        serverSocket.close();
+    }
+
+    /** Returns the port that the server listens on. */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread.ofVirtual().start(() -> serve(socket));
+            } catch (IOException e) {
+                // The server socket was closed.
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+            Request request;
+            while ((request = BinaryProtocol.readRequest(in)) != null) {
+                try {
+                    BinaryProtocol.writeResult(out, network.apply(request));
+                } catch (RuntimeException e) {
+                    BinaryProtocol.writeError(out, e.toString());
+                }
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // The client went away or sent a malformed frame; the connection is closed.
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 9090;
+        int capacity = (args.length > 1) ? Integer.parseInt(args[1]) : 100000;
+        BinaryServer server = new BinaryServer(new SharedNetwork(new Network(capacity)), port);
+        server.start();
+        System.out.println("Listening on port " + server.getPort());
+        server.acceptor.join();
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.Arrays;
+
+/**
+ * Scratch buffers for recommendWhoToFollow: the score sums of the candidates of one
+ * recommendation, and the list of candidates that have one. Like PathSearch, it is allocated
+ * once and lent to one query at a time, and is cleared by stamping instead of by filling, so a
+ * recommendation allocates nothing per candidate.
+ */
+class CandidateScores {
+
+    private final double[] sums;
+    private final int[] stamps;
+    private final int[] candidates;
+    private int size;
+    private int stamp;
+
+    /** Creates the buffers for a network with the given capacity. */
+    CandidateScores(int capacity) {
+        sums = new double[capacity];
+        stamps = new int[capacity];
+        candidates = new int[capacity];
+    }
+
+    /** Forgets all the candidates. */
+    void clear() {
+        size = 0;
+        stamp++;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    /** Adds the weight to the sum of the given candidate. */
+    void add(int candidate, double weight) {
+        if (stamps[candidate] != stamp) {
+            stamps[candidate] = stamp;
+            sums[candidate] = 0;
+            candidates[size++] = candidate;
+        }
+        sums[candidate] += weight;
+    }
+
+    /** Returns the number of candidates. */
+    int size() {
+        return this.size;
+    }
+
+    /** Returns the i-th candidate, in the order in which they were added. */
+    int candidate(int i) {
+        return candidates[i];
+    }
+
+    /** Returns the sum of the given candidate. */
+    double sum(int candidate) {
+        return sums[candidate];
+    }
+}
@@ -0,0 +1,161 @@
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * Connected components of a follow graph. In a weakly connected component, every two users are
+ * linked by a chain of follows in any direction; in a strongly connected component, every user
+ * can reach every other one by following follows in their direction.
+ *
+ * Components are identified by numbers from 0 to the number of components - 1, in the order of
+ * their first user: user 0 is always in component 0, and the next component is the one of the
+ * first user who is not in component 0, and so on.
+ *
+ * The graph is given as adjacency arrays, as in the PathSearch class: out[u] holds the followees
+ * of user u in its first outCounts[u] elements.
+ */
+public class Components {
+
+    private Components() {
+    }
+
+    /**
+     * Writes the weak component of each of the first n ids of the given union-find structure
+     * into the array, and returns the number of components.
+     */
+    public static int weak(UnionFind sets, int n, int[] component) {
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            int root = sets.find(v);
+            // The root is the smallest id of its set, so its component was already numbered.
+            component[v] = (root == v) ? count++ : component[root];
+        }
+        return count;
+    }
+
+    /**
+     * Writes the strong component of each of the first n users into the array, and returns the
+     * number of components. This is Tarjan's algorithm, with an explicit stack instead of
+     * recursion, so that long follow chains cannot overflow the call stack. Takes O(n + m) time,
+     * where m is the number of follows, and five int arrays of size n besides the result.
+     */
+    public static int strong(int[][] out, int[] outCounts, int n, int[] component) {
+        int[] index = new int[n];
+        int[] low = new int[n];
+        // The next followee to visit, of each user on the call stack.
+        int[] next = new int[n];
+        int[] callStack = new int[n];
+        // Tarjan's stack of visited users with no component yet. It uses the result array, which
+        // is filled in only at the end.
+        int[] stack = component;
+        for (int v = 0; v < n; v++) {
+            index[v] = -1;
+        }
+        int counter = 0;
+        int count = 0;
+        int stackSize = 0;
+        // The component of each user, in the order in which they were found, or -1 for users on Tarjan's stack.
+        int[] raw = new int[n];
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            index[root] = low[root] = counter++;
+            raw[root] = -1;
+            next[root] = 0;
+            stack[stackSize++] = root;
+            callStack[depth++] = root;
+            while (depth > 0) {
+                int v = callStack[depth - 1];
+                if (next[v] < outCounts[v]) {
+                    int w = out[v][next[v]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        raw[w] = -1;
+                        next[w] = 0;
+                        stack[stackSize++] = w;
+                        callStack[depth++] = w;
+                    } else if (raw[w] < 0) {
+                        // w is still on Tarjan's stack, so it is in the component of v, or of a user below v.
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        raw[w] = count;
+                    } while (w != v);
+                    count++;
+                }
+                if (depth > 0) {
+                    int parent = callStack[depth - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+        // Renumbers the components in the order of their first user.
+        int[] renumbered = index;
+        for (int c = 0; c < count; c++) {
+            renumbered[c] = -1;
+        }
+        int numbered = 0;
+        for (int v = 0; v < n; v++) {
+            if (renumbered[raw[v]] < 0) {
+                renumbered[raw[v]] = numbered++;
+            }
+            component[v] = renumbered[raw[v]];
+        }
+        return count;
+    }
+
+    /**
+     * Takes the first idCount of the given ids out of the components of the first n users: their
+     * component becomes -1, and the other components are numbered again in the order of their
+     * first user. Each of these ids must be a component on its own, such as the free slot of a
+     * removed user. Returns the new number of components.
+     */
+    public static int exclude(int[] component, int n, int count, int[] ids, int idCount) {
+        if (idCount == 0) {
+            return count;
+        }
+        for (int i = 0; i < idCount; i++) {
+            component[ids[i]] = -1;
+        }
+        int[] renumbered = new int[count];
+        Arrays.fill(renumbered, -1);
+        int numbered = 0;
+        for (int v = 0; v < n; v++) {
+            int c = component[v];
+            if (c >= 0) {
+                if (renumbered[c] < 0) {
+                    renumbered[c] = numbered++;
+                }
+                component[v] = renumbered[c];
+            }
+        }
+        return numbered;
+    }
+
+    /** Returns the size of each component, given the components of the first n users. Users in component -1 are left out. */
+    public static int[] sizes(int[] component, int n, int count) {
+        int[] sizes = new int[count];
+        for (int v = 0; v < n; v++) {
+            if (component[v] >= 0) {
+                sizes[component[v]]++;
+            }
+        }
+        return sizes;
+    }
+
+    /** Returns, for each component size, the number of components of that size, by increasing size. */
+    public static TreeMap<Integer, Integer> sizeHistogram(int[] component, int n, int count) {
+        TreeMap<Integer, Integer> histogram = new TreeMap<>();
+        for (int size : sizes(component, n, count)) {
+            histogram.merge(size, 1, Integer::sum);
+        }
+        return histogram;
+    }
+}
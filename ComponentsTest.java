@@ -0,0 +1,119 @@
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/** Tests the connected components of the Network class, against plain breadth-first searches. */
+public class ComponentsTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the weak and strong components of a network...\n");
+
+        System.out.println("...Creating a ring Alex -> Orly -> Idan -> Alex, with Keren following Alex, and Neta alone...");
+        Network net = new Network(10);
+        for (String name : new String[] {"Alex", "Orly", "Idan", "Keren", "Neta"}) {
+            net.addUser(name);
+        }
+        net.addFollowee("Alex", "Orly");
+        net.addFollowee("Orly", "Idan");
+        net.addFollowee("Idan", "Alex");
+        net.addFollowee("Keren", "Alex");
+        System.out.println("Weak components: " + net.weakComponentCount());
+        System.out.println("Keren and Idan are weakly connected: " + net.inSameWeakComponent("Keren", "Idan"));
+        System.out.println("Neta is not connected to Alex: " + !net.inSameWeakComponent("Neta", "Alex"));
+        int[] strong = net.strongComponents();
+        System.out.println("The ring is one strong component: " + (strong[0] == strong[1] && strong[1] == strong[2]));
+        System.out.println("Keren is a strong component alone: " + (strong[3] != strong[0]));
+        System.out.println("Strong component sizes: " + net.strongComponentSizes());
+
+        System.out.println("\n...Removing Keren -> Alex, which splits a weak component...");
+        net.removeFollowee("Keren", "Alex");
+        System.out.println("Weak components: " + net.weakComponentCount());
+        System.out.println("Keren is no longer connected to Idan: " + !net.inSameWeakComponent("Keren", "Idan"));
+
+        System.out.println("\n...Removing Orly, which breaks the ring...");
+        net.removeUser("Orly");
+        strong = net.strongComponents();
+        System.out.println("Orly's slot has no component: " + (strong[1] == -1 && net.weakComponents()[1] == -1));
+        System.out.println("Alex and Idan are in different strong components: " + (strong[0] != strong[2]));
+        System.out.println("Weak component sizes: " + net.weakComponentSizes());
+
+        System.out.println("\n...Comparing with breadth-first searches on random networks...");
+        Random random = new Random(37);
+        boolean weak = true;
+        boolean strongMatch = true;
+        for (int round = 0; round < 20; round++) {
+            int users = 300;
+            Network network = new Network(users, 5);
+            for (int i = 0; i < users; i++) {
+                network.addUser(GraphGenerator.name(i));
+            }
+            // Few follows per user, so there are many components of all sizes.
+            for (int i = 0; i < users; i++) {
+                int follows = random.nextInt(3);
+                for (int j = 0; j < follows; j++) {
+                    network.addFollowee(GraphGenerator.name(i), GraphGenerator.name(random.nextInt(users)));
+                }
+            }
+            if (round % 2 == 1) {
+                for (int i = 0; i < 50; i++) {
+                    User user = network.getUser(GraphGenerator.name(random.nextInt(users)));
+                    if (user.getfCount() > 0) {
+                        network.removeFollowee(user.getName(), user.getfFollows()[0]);
+                    }
+                }
+            }
+            boolean[][] reaches = new boolean[users][];
+            for (int u = 0; u < users; u++) {
+                reaches[u] = reachable(network, u, users, false);
+            }
+            int[] weakComponents = network.weakComponents();
+            int[] strongComponents = network.strongComponents();
+            int weakCount = 0;
+            for (int u = 0; u < users; u++) {
+                boolean[] linked = reachable(network, u, users, true);
+                boolean first = true;
+                for (int v = 0; v < users; v++) {
+                    weak &= linked[v] == (weakComponents[u] == weakComponents[v]);
+                    weak &= linked[v] == network.inSameWeakComponent(GraphGenerator.name(u), GraphGenerator.name(v));
+                    strongMatch &= (reaches[u][v] && reaches[v][u]) == (strongComponents[u] == strongComponents[v]);
+                    first &= !(linked[v] && v < u);
+                }
+                if (first) {
+                    weakCount++;
+                }
+            }
+            weak &= network.weakComponentCount() == weakCount;
+        }
+        System.out.println("Weak components match: " + weak);
+        System.out.println("Strong components match: " + strongMatch);
+
+        System.out.println("\nAll component tests completed.");
+    }
+
+    /** Returns the users that u reaches by follows, or by follows in either direction if undirected is true. */
+    private static boolean[] reachable(Network network, int u, int users, boolean undirected) {
+        boolean[] seen = new boolean[users];
+        seen[u] = true;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(u);
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            User user = network.getUser(GraphGenerator.name(v));
+            for (int i = 0; i < user.getfCount(); i++) {
+                int w = GraphGenerator.id(user.getfFollows()[i]);
+                if (!seen[w]) {
+                    seen[w] = true;
+                    queue.add(w);
+                }
+            }
+            if (undirected) {
+                for (String follower : network.getFollowers(user.getName())) {
+                    int w = GraphGenerator.id(follower);
+                    if (!seen[w]) {
+                        seen[w] = true;
+                        queue.add(w);
+                    }
+                }
+            }
+        }
+        return seen;
+    }
+}
@@ -0,0 +1,392 @@
+import java.util.Arrays;
+
+/**
+ * A compact, read-only copy of the follow lists of a network, for graphs whose int arrays (or
+ * String arrays of names) no longer fit in memory, such as a snapshot that serves queries.
+ * Each list is kept as sorted ids, and each id is stored as its difference from the one before
+ * it (delta encoding), in as few bytes as it needs: 7 bits per byte, with the high bit set on
+ * all bytes but the last (varint). Users with nearby ids, such as members of one community,
+ * differ by small numbers, which take one or two bytes instead of four.
+ *
+ * All the lists share one byte array, and a user only has the offset of its list in it, so a
+ * user costs 4 bytes plus a varint count, and a follow costs the bytes of its delta. Varints
+ * can only be decoded in order, so a list of more than BLOCK ids starts with a skip index: the
+ * id at the start of every block of BLOCK ids, and the offset of the next one, as two 4-byte
+ * ints. A lookup searches the skip index, and then decodes at most one block.
+ *
+ * Nothing is decoded into arrays: follows, countMutual and Cursor read the bytes in place. It
+ * takes ids that are the slots of users in a Network (see Network.getId), and is built by
+ * Network.compressFollowees or Network.compressFollowers. To serve a graph that is too large to
+ * be a Network at all, a Builder builds it from a stream of follows instead, one list at a time,
+ * such as the edge list of GraphGenerator (see CompressedNetwork).
+ */
+public class CompressedAdjacency {
+
+    /** The number of ids between two entries of the skip index. */
+    public static final int BLOCK = 64;
+
+    private final int n;
+    /** The offset of the list of each user in data, and the end of the last list. */
+    private final int[] starts;
+    /** For each user: its count, then its skip index (if it has more than BLOCK ids), then its deltas. */
+    private final byte[] data;
+    private final long edgeCount;
+
+    private CompressedAdjacency(int n, int[] starts, byte[] data, long edgeCount) {
+        this.n = n;
+        this.starts = starts;
+        this.data = data;
+        this.edgeCount = edgeCount;
+    }
+
+    /**
+     * Compresses the first n lists: list[u] holds the ids of user u in its first counts[u]
+     * elements, in any order, without repeats. A null list is empty.
+     */
+    public static CompressedAdjacency of(int[][] lists, int[] counts, int n) {
+        int[][] scratch = {new int[16]};
+        // The first pass only measures, so that the bytes fit in one array of the exact size.
+        long size = 0;
+        long edges = 0;
+        for (int u = 0; u < n; u++) {
+            size += encode(null, 0, sorted(lists[u], counts[u], scratch), counts[u]);
+            edges += counts[u];
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("the lists take " + size + " bytes, more than one array can hold");
+        }
+        byte[] data = new byte[(int) size];
+        int[] starts = new int[n + 1];
+        int at = 0;
+        for (int u = 0; u < n; u++) {
+            starts[u] = at;
+            at += encode(data, at, sorted(lists[u], counts[u], scratch), counts[u]);
+        }
+        starts[n] = at;
+        return new CompressedAdjacency(n, starts, data, edges);
+    }
+
+    /**
+     * Builds the lists from a stream of follows, grouped by follower in increasing order, as
+     * GraphGenerator writes them. Only the list of the current follower is kept as ints; every
+     * other list is encoded as soon as the next follower starts, so the peak memory is about
+     * that of the encoded lists, and not that of int arrays.
+     */
+    public static final class Builder {
+
+        private byte[] data = new byte[1 << 12];
+        private int size;
+        private int[] starts = new int[256];
+        /** The number of users whose lists are encoded. */
+        private int n;
+        private int follower = -1;
+        private int[] list = new int[16];
+        private int count;
+        private int maxId = -1;
+        private long edgeCount;
+
+        /**
+         * Adds a follow. The followers must come in increasing order, all the follows of one
+         * follower together, and the followees of one follower in any order. A repeated follow
+         * is added once.
+         */
+        public Builder add(int follower, int followee) {
+            if (follower < 0 || followee < 0) {
+                throw new IllegalArgumentException("negative id in " + follower + " " + followee);
+            }
+            if (follower < this.follower) {
+                throw new IllegalArgumentException("the follows of " + follower + " come after those of " + this.follower);
+            }
+            if (follower > this.follower) {
+                finishUpTo(follower);
+                this.follower = follower;
+            }
+            if (count == list.length) {
+                list = Arrays.copyOf(list, 2 * count);
+            }
+            list[count++] = followee;
+            maxId = Math.max(maxId, Math.max(follower, followee));
+            return this;
+        }
+
+        /** Encodes the list of the current follower, and empty lists for the users before the given one. */
+        private void finishUpTo(int user) {
+            while (n < user) {
+                int length = 0;
+                if (n == follower) {
+                    Arrays.sort(list, 0, count);
+                    length = distinct(list, count);
+                    edgeCount += length;
+                    count = 0;
+                }
+                if (n + 1 >= starts.length) {
+                    starts = Arrays.copyOf(starts, (int) Math.min(Integer.MAX_VALUE - 8, 2L * starts.length));
+                }
+                int bytes = encode(null, 0, list, length);
+                if ((long) size + bytes > Integer.MAX_VALUE - 8) {
+                    throw new IllegalArgumentException("the lists take more bytes than one array can hold");
+                }
+                if (size + bytes > data.length) {
+                    data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(size + bytes, 2L * data.length)));
+                }
+                starts[n++] = size;
+                size += encode(data, size, list, length);
+            }
+        }
+
+        /** Moves the distinct ids of the sorted list to its front. Returns their number. */
+        private static int distinct(int[] ids, int count) {
+            int length = 0;
+            for (int i = 0; i < count; i++) {
+                if (length == 0 || ids[i] != ids[length - 1]) {
+                    ids[length++] = ids[i];
+                }
+            }
+            return length;
+        }
+
+        /** Returns the lists of users 0 to the largest id (follower or followee) that was added. */
+        public CompressedAdjacency build() {
+            return build(maxId + 1);
+        }
+
+        /** Returns the lists of the given number of users, which is more than the largest follower that was added. */
+        public CompressedAdjacency build(int userCount) {
+            if (userCount <= follower) {
+                throw new IllegalArgumentException("follower " + follower + " is not below the user count " + userCount);
+            }
+            finishUpTo(userCount);
+            int[] offsets = Arrays.copyOf(starts, userCount + 1);
+            offsets[userCount] = size;
+            return new CompressedAdjacency(userCount, offsets, Arrays.copyOf(data, size), edgeCount);
+        }
+    }
+
+    /** Returns the list itself if its first count ids are sorted, or else a sorted copy of them in scratch[0], which grows as needed. */
+    private static int[] sorted(int[] list, int count, int[][] scratch) {
+        for (int i = 1; i < count; i++) {
+            if (list[i - 1] > list[i]) {
+                if (scratch[0].length < count) {
+                    scratch[0] = new int[count];
+                }
+                System.arraycopy(list, 0, scratch[0], 0, count);
+                Arrays.sort(scratch[0], 0, count);
+                return scratch[0];
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Writes the encoded list of the first count sorted ids at the given offset of out, and
+     * returns the number of bytes. If out is null, only returns the number of bytes.
+     */
+    private static int encode(byte[] out, int at, int[] ids, int count) {
+        int start = at;
+        at = writeVarint(out, at, count);
+        int skips = (count - 1) / BLOCK;
+        int skipIndex = at;
+        at += 8 * Math.max(0, skips);
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            // Ids are strictly increasing, so every delta after the first one is at least 1.
+            at = writeVarint(out, at, (i == 0) ? ids[0] : ids[i] - previous - 1);
+            if (i > 0 && i % BLOCK == 0 && out != null) {
+                // The id that starts the block, and where the delta of the id after it starts.
+                int entry = skipIndex + 8 * (i / BLOCK - 1);
+                writeInt(out, entry, ids[i]);
+                writeInt(out, entry + 4, at - start);
+            }
+            previous = ids[i];
+        }
+        return at - start;
+    }
+
+    /** Writes the value as a varint at the given offset of out (or only measures it, if out is null). Returns the offset after it. */
+    private static int writeVarint(byte[] out, int at, int value) {
+        while ((value & ~0x7F) != 0) {
+            if (out != null) {
+                out[at] = (byte) ((value & 0x7F) | 0x80);
+            }
+            value >>>= 7;
+            at++;
+        }
+        if (out != null) {
+            out[at] = (byte) value;
+        }
+        return at + 1;
+    }
+
+    private static void writeInt(byte[] out, int at, int value) {
+        out[at] = (byte) (value >>> 24);
+        out[at + 1] = (byte) (value >>> 16);
+        out[at + 2] = (byte) (value >>> 8);
+        out[at + 3] = (byte) value;
+    }
+
+    private int readInt(int at) {
+        return (data[at] << 24) | ((data[at + 1] & 0xFF) << 16) | ((data[at + 2] & 0xFF) << 8) | (data[at + 3] & 0xFF);
+    }
+
+    /** Returns the number of users. */
+    public int getUserCount() {
+        return this.n;
+    }
+
+    /** Returns the number of ids in all the lists. */
+    public long getEdgeCount() {
+        return this.edgeCount;
+    }
+
+    /** Returns the number of bytes of the lists and of the offsets of the users. */
+    public long getByteCount() {
+        return (long) data.length + 4L * starts.length;
+    }
+
+    /** Returns the average number of bytes per id, or 0 if there are none. */
+    public double bytesPerEdge() {
+        return (edgeCount == 0) ? 0 : (double) getByteCount() / edgeCount;
+    }
+
+    /** Returns the number of ids in the list of user u. */
+    public int count(int u) {
+        int at = starts[u];
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[at++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /** Returns true if the list of user u holds the given id. Decodes at most one block. */
+    public boolean follows(int u, int id) {
+        Cursor cursor = new Cursor().reset(u);
+        return cursor.advanceTo(id) && cursor.current() == id;
+    }
+
+    /** Returns the number of ids that the lists of users u and v have in common, in one merge over both. */
+    public int countMutual(int u, int v) {
+        Cursor a = new Cursor().reset(u);
+        Cursor b = new Cursor().reset(v);
+        if (!a.next() || !b.next()) {
+            return 0;
+        }
+        int count = 0;
+        while (true) {
+            int x = a.current();
+            int y = b.current();
+            if (x == y) {
+                count++;
+                if (!a.next() || !b.next()) {
+                    return count;
+                }
+            } else if (x < y) {
+                // advanceTo jumps over whole blocks of the longer list, through its skip index.
+                if (!a.advanceTo(y)) {
+                    return count;
+                }
+            } else if (!b.advanceTo(x)) {
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Reads the ids of one list in increasing order, from the bytes. One cursor can be reset to
+     * read many lists, so iterating over a whole network allocates nothing:
+     *
+     *   for (Cursor c = adjacency.new Cursor().reset(u); c.next(); ) { use(c.current()); }
+     */
+    public class Cursor {
+
+        private int count;
+        /** The offset of the list, and of its skip index. */
+        private int start;
+        private int skipIndex;
+        private int at;
+        private int index;
+        private int value;
+
+        /** Starts reading the list of user u, before its first id. Returns this cursor. */
+        public Cursor reset(int u) {
+            start = starts[u];
+            at = start;
+            count = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[at++];
+                count |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            skipIndex = at;
+            at += 8 * Math.max(0, (count - 1) / BLOCK);
+            index = -1;
+            value = 0;
+            return this;
+        }
+
+        /** Moves to the next id. Returns false if there is none. */
+        public boolean next() {
+            if (index + 1 >= count) {
+                index = count;
+                return false;
+            }
+            int delta = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[at++];
+                delta |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            value = (index < 0) ? delta : value + delta + 1;
+            index++;
+            return true;
+        }
+
+        /** Returns the current id. */
+        public int current() {
+            return this.value;
+        }
+
+        /**
+         * Moves forward to the first id that is at least the target, jumping over whole blocks
+         * through the skip index. Returns false if there is none. Never moves back.
+         */
+        public boolean advanceTo(int target) {
+            if (index >= 0 && index < count && value >= target) {
+                return true;
+            }
+            // The last block that starts at or before the target, if it is after the current id.
+            int lo = Math.max(0, index / BLOCK);
+            int hi = (count - 1) / BLOCK;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (readInt(skipIndex + 8 * (mid - 1)) <= target) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (lo > 0 && lo * BLOCK > index) {
+                int entry = skipIndex + 8 * (lo - 1);
+                value = readInt(entry);
+                at = start + readInt(entry + 4);
+                index = lo * BLOCK;
+                if (value >= target) {
+                    return true;
+                }
+            }
+            while (next()) {
+                if (value >= target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
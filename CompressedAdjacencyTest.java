@@ -0,0 +1,145 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/** Tests the CompressedAdjacency and CompressedNetwork classes, against plain sorted int arrays. */
+public class CompressedAdjacencyTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("...Testing the CompressedAdjacency class...\n");
+
+        // Lists around the skip index boundaries (BLOCK = 64), with small gaps, large gaps, and the extreme ids.
+        int[] sizes = {0, 1, 2, 63, 64, 65, 127, 128, 129, 200, 1000};
+        Random random = new Random(50);
+        int n = 2 * sizes.length + 1;
+        int[][] lists = new int[n][];
+        int[] counts = new int[n];
+        for (int i = 0; i < sizes.length; i++) {
+            lists[2 * i] = sortedIds(random, sizes[i], 3);
+            lists[2 * i + 1] = sortedIds(random, sizes[i], Integer.MAX_VALUE / Math.max(1, sizes[i]));
+            counts[2 * i] = sizes[i];
+            counts[2 * i + 1] = sizes[i];
+        }
+        lists[n - 1] = new int[] {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+        counts[n - 1] = lists[n - 1].length;
+        CompressedAdjacency adjacency = CompressedAdjacency.of(lists, counts, n);
+
+        System.out.println("...Decoding every list, at sizes " + Arrays.toString(sizes) + "...");
+        boolean roundTrip = true;
+        boolean countsMatch = true;
+        boolean lookups = true;
+        for (int u = 0; u < n; u++) {
+            roundTrip &= Arrays.equals(decode(adjacency, u), Arrays.copyOf(lists[u], counts[u]));
+            countsMatch &= adjacency.count(u) == counts[u];
+            for (int i = 0; i < counts[u]; i++) {
+                lookups &= adjacency.follows(u, lists[u][i]);
+                if (lists[u][i] > 0 && (i == 0 || lists[u][i - 1] != lists[u][i] - 1)) {
+                    lookups &= !adjacency.follows(u, lists[u][i] - 1);
+                }
+            }
+        }
+        System.out.println("Every list decodes to its ids: " + roundTrip);
+        System.out.println("Every list has its count: " + countsMatch);
+        System.out.println("follows finds every id, and no id next to one: " + lookups);
+
+        System.out.println("\n...Comparing advanceTo with a binary search of the int arrays...");
+        boolean advance = true;
+        for (int u = 0; u < n; u++) {
+            CompressedAdjacency.Cursor cursor = adjacency.new Cursor().reset(u);
+            long target = 0;
+            while (target <= Integer.MAX_VALUE) {
+                int at = Arrays.binarySearch(lists[u], 0, counts[u], (int) target);
+                int expected = (at >= 0) ? at : -at - 1;
+                boolean found = cursor.advanceTo((int) target);
+                advance &= (found == (expected < counts[u])) && (!found || cursor.current() == lists[u][expected]);
+                // Steps of all sizes, so that some land in the same block, and some skip blocks.
+                target += 1 + random.nextInt((int) Math.min(Integer.MAX_VALUE, 1L << random.nextInt(32)));
+            }
+        }
+        System.out.println("advanceTo stops at the first id at least the target: " + advance);
+
+        System.out.println("\n...Comparing countMutual with a merge of the int arrays...");
+        int[][] close = new int[8][];
+        int[] closeCounts = new int[8];
+        for (int u = 0; u < close.length; u++) {
+            // Lists of very different sizes over one range, so that they share many ids.
+            closeCounts[u] = 1 + random.nextInt(u < 4 ? 40 : 700);
+            close[u] = sortedIds(random, closeCounts[u], 1000 / closeCounts[u] + 1);
+        }
+        CompressedAdjacency shared = CompressedAdjacency.of(close, closeCounts, close.length);
+        boolean mutual = true;
+        for (int u = 0; u < close.length; u++) {
+            for (int v = 0; v < close.length; v++) {
+                int expected = FollowSets.intersect(close[u], closeCounts[u], close[v], closeCounts[v], null, Integer.MAX_VALUE);
+                mutual &= shared.countMutual(u, v) == expected;
+            }
+        }
+        System.out.println("countMutual matches for every pair: " + mutual);
+
+        System.out.println("\n...Building from a stream of follows...");
+        CompressedAdjacency.Builder builder = new CompressedAdjacency.Builder();
+        for (int u = 0; u < n; u++) {
+            // In reverse order, and with a repeated follow, which the builder sorts and drops.
+            for (int i = counts[u] - 1; i >= 0; i--) {
+                builder.add(u, lists[u][i]);
+            }
+            if (counts[u] > 0) {
+                builder.add(u, lists[u][0]);
+            }
+        }
+        CompressedAdjacency built = builder.build(n);
+        boolean same = built.getEdgeCount() == adjacency.getEdgeCount();
+        for (int u = 0; u < n; u++) {
+            same &= Arrays.equals(decode(built, u), decode(adjacency, u));
+        }
+        System.out.println("The builder gives the same lists: " + same);
+        boolean rejected = false;
+        try {
+            new CompressedAdjacency.Builder().add(2, 1).add(1, 2);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        System.out.println("The builder rejects followers out of order: " + rejected);
+
+        System.out.println("\n...Reading a generated edge list into a CompressedNetwork...");
+        GraphGenerator generator = new GraphGenerator(GraphGenerator.Model.COMMUNITY, 3000, 20, 7);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        generator.writeEdgeList(out);
+        CompressedNetwork compressed = CompressedNetwork.readEdgeList(new ByteArrayInputStream(out.toByteArray()));
+        Network network = generator.newNetwork();
+        boolean answers = true;
+        for (int i = 0; i < 20000; i++) {
+            String name1 = GraphGenerator.name(random.nextInt(3000));
+            String name2 = GraphGenerator.name(random.nextInt(3000));
+            answers &= compressed.follows(name1, name2) == network.getUser(name1).follows(name2);
+            answers &= compressed.countMutualFollowees(name1, name2) == network.countMutualFollowees(name1, name2);
+        }
+        System.out.println("follows and countMutualFollowees match a Network: " + answers);
+        System.out.println("Names of no user follow nobody: " + (!compressed.follows("User3000", "User1")
+                && !compressed.follows("Alex", "User1") && compressed.countMutualFollowees("user01", "User1") == 0));
+        System.out.printf("%d follows take %.2f bytes each%n", compressed.getFollowCount(), compressed.getFollowees().bytesPerEdge());
+
+        System.out.println("\nAll CompressedAdjacency class tests completed.");
+    }
+
+    /** Returns count distinct random ids in increasing order, with gaps of 1 to maxGap. */
+    private static int[] sortedIds(Random random, int count, int maxGap) {
+        int[] ids = new int[count];
+        long id = random.nextInt(Math.max(1, maxGap));
+        for (int i = 0; i < count; i++) {
+            ids[i] = (int) Math.min(Integer.MAX_VALUE - (count - i), id);
+            id = (long) ids[i] + 1 + random.nextInt(Math.max(1, maxGap));
+        }
+        return ids;
+    }
+
+    private static int[] decode(CompressedAdjacency adjacency, int u) {
+        int[] ids = new int[adjacency.count(u)];
+        int i = 0;
+        for (CompressedAdjacency.Cursor cursor = adjacency.new Cursor().reset(u); cursor.next(); ) {
+            ids[i++] = cursor.current();
+        }
+        return ids;
+    }
+}
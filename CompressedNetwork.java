@@ -0,0 +1,165 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A read-only network that is stored only as compressed follow lists (see the
+ * CompressedAdjacency class), for graphs that are too large to be a Network: it is built
+ * straight from an edge list, one follower at a time, so the follows are never held as int
+ * arrays or as String arrays of names. Its users are the users of a GraphGenerator network,
+ * named by GraphGenerator.name, and it answers the follows and countMutualFollowees questions
+ * of a Network by name.
+ *
+ * Usage: java CompressedNetwork <file> [name1 name2]
+ * Reads the edge list from the given file, or from standard input if the file is "-", and
+ * prints its size, and whether name1 follows name2 and how many followees they have in common.
+ */
+public class CompressedNetwork {
+
+    private final CompressedAdjacency followees;
+
+    /** Creates a network whose follows are the given lists of followees, by user number. */
+    public CompressedNetwork(CompressedAdjacency followees) {
+        this.followees = followees;
+    }
+
+    /**
+     * Reads an edge list with one "followerId followeeId" line per follow, grouped by follower
+     * in increasing order, as GraphGenerator.writeEdgeList writes it. Blank lines are skipped.
+     * Throws an IllegalArgumentException if a line is not two numbers, or is out of order.
+     */
+    public static CompressedNetwork readEdgeList(InputStream in) throws IOException {
+        GraphEvents.BulkLoad event = new GraphEvents.BulkLoad();
+        event.begin();
+        CompressedAdjacency.Builder builder = new CompressedAdjacency.Builder();
+        byte[] buffer = new byte[1 << 16];
+        long line = 1;
+        long records = 0;
+        // The numbers of the current line, how many of them were read, and whether one is being read.
+        long[] ids = new long[2];
+        int found = 0;
+        boolean inNumber = false;
+        int length;
+        while ((length = in.read(buffer)) > 0) {
+            for (int i = 0; i < length; i++) {
+                byte b = buffer[i];
+                if (b >= '0' && b <= '9') {
+                    if (!inNumber) {
+                        if (found == 2) {
+                            throw new IllegalArgumentException("line " + line + ": more than two numbers");
+                        }
+                        ids[found++] = 0;
+                        inNumber = true;
+                    }
+                    ids[found - 1] = 10 * ids[found - 1] + (b - '0');
+                    if (ids[found - 1] > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException("line " + line + ": a number is too large");
+                    }
+                } else if (b == ' ' || b == '\t' || b == '\r') {
+                    inNumber = false;
+                } else if (b == '\n') {
+                    records += add(builder, ids, found, line);
+                    found = 0;
+                    inNumber = false;
+                    line++;
+                } else {
+                    throw new IllegalArgumentException("line " + line + ": unexpected character '" + (char) b + "'");
+                }
+            }
+        }
+        records += add(builder, ids, found, line);
+        CompressedNetwork network = new CompressedNetwork(builder.build());
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = "edge list";
+            event.recordsRead = records;
+            event.duplicateChecks = records;
+            event.recordsAdded = network.followees.getEdgeCount();
+            event.recordsRejected = records - network.followees.getEdgeCount();
+            event.commit();
+        }
+        return network;
+    }
+
+    /** Adds the follow of a line with the given number of numbers. Returns the number of follows added to the builder. */
+    private static int add(CompressedAdjacency.Builder builder, long[] ids, int found, long line) {
+        if (found == 0) {
+            return 0;
+        }
+        if (found == 1) {
+            throw new IllegalArgumentException("line " + line + ": expected two numbers");
+        }
+        try {
+            builder.add((int) ids[0], (int) ids[1]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("line " + line + ": " + e.getMessage());
+        }
+        return 1;
+    }
+
+    /** Returns the number of users: one more than the largest user number in the follows. */
+    public int getUserCount() {
+        return followees.getUserCount();
+    }
+
+    /** Returns the number of follows. */
+    public long getFollowCount() {
+        return followees.getEdgeCount();
+    }
+
+    /** Returns the compressed lists of followees, by user number. */
+    public CompressedAdjacency getFollowees() {
+        return this.followees;
+    }
+
+    /**
+     * If the user with name1 follows the user with name2, returns true. If any of the two names
+     * is not a user in this network, returns false.
+     */
+    public boolean follows(String name1, String name2) {
+        int id1 = idOf(name1);
+        int id2 = idOf(name2);
+        return id1 >= 0 && id2 >= 0 && followees.follows(id1, id2);
+    }
+
+    /**
+     * Returns the number of users that both given users follow. If any of the two names is not
+     * a user in this network, returns 0.
+     */
+    public int countMutualFollowees(String name1, String name2) {
+        int id1 = idOf(name1);
+        int id2 = idOf(name2);
+        return (id1 < 0 || id2 < 0) ? 0 : followees.countMutual(id1, id2);
+    }
+
+    /** Returns the number of users that the user with the given name follows, or 0 if there is no such user. */
+    public int followeeCount(String name) {
+        int id = idOf(name);
+        return (id < 0) ? 0 : followees.count(id);
+    }
+
+    private int idOf(String name) {
+        int id = GraphGenerator.id(name);
+        return (id < followees.getUserCount()) ? id : -1;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java CompressedNetwork <file> [name1 name2]");
+            return;
+        }
+        long start = System.nanoTime();
+        CompressedNetwork network;
+        try (InputStream in = args[0].equals("-") ? System.in : new FileInputStream(args[0])) {
+            network = readEdgeList(in);
+        }
+        CompressedAdjacency adjacency = network.getFollowees();
+        System.out.printf("%d users, %d follows, %d bytes (%.2f per follow), read in %d ms%n",
+                network.getUserCount(), network.getFollowCount(), adjacency.getByteCount(), adjacency.bytesPerEdge(),
+                (System.nanoTime() - start) / 1_000_000);
+        if (args.length > 2) {
+            System.out.println(args[1] + " follows " + args[2] + ": " + network.follows(args[1], args[2]));
+            System.out.println("Mutual followees: " + network.countMutualFollowees(args[1], args[2]));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/** Tests the fast removal of followees of the User class, against users without it. */
+public class FastRemovalTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the fast removal of followees...\n");
+
+        System.out.println("...Creating Alex, who follows Ben, Neta, Dana, Or and Zohar, with fast removal...");
+        User alex = new User("Alex");
+        alex.enableFastRemoval();
+        for (String name : new String[] {"Ben", "Neta", "Dana", "Or", "Zohar"}) {
+            alex.addFollowee(name);
+        }
+        System.out.println(alex);
+        System.out.println("\n...Removing Neta and Ben, and adding Maya...");
+        System.out.println("Removing Neta: " + alex.removeFollowee("Neta"));
+        System.out.println("Removing ben, in lowercase: " + alex.removeFollowee("ben"));
+        System.out.println("Removing Neta again is rejected: " + !alex.removeFollowee("Neta"));
+        alex.addFollowee("Maya");
+        // The list is still in the order in which the followees were added.
+        System.out.println(alex);
+        System.out.println("Alex follows Zohar: " + alex.follows("ZOHAR"));
+        System.out.println("Alex no longer follows Neta: " + !alex.follows("Neta"));
+
+        System.out.println("\n...Enabling fast removal of a user who already follows some users...");
+        User orly = new User("Orly");
+        orly.addFollowee("Boaz");
+        orly.addFollowee("Maya");
+        orly.addFollowee("Talia");
+        orly.enableFastRemoval();
+        orly.removeFollowee("Boaz");
+        System.out.println(orly);
+        System.out.println("Mutual followees of Alex and Orly: " + (alex.countMutual(orly) == 1));
+
+        System.out.println("\n...Comparing random adds and removes with a user without fast removal...");
+        Random random = new Random(47);
+        boolean results = true;
+        boolean order = true;
+        for (int round = 0; round < 200; round++) {
+            User slow = new User("Slow", 30);
+            User fast = new User("Fast", 30);
+            fast.enableFastRemoval();
+            for (int step = 0; step < 500; step++) {
+                String name = (random.nextBoolean() ? "U" : "u") + random.nextInt(60);
+                int op = random.nextInt(5);
+                if (op < 2) {
+                    results &= slow.addFollowee(name) == fast.addFollowee(name);
+                } else if (op < 4) {
+                    results &= slow.removeFollowee(name) == fast.removeFollowee(name);
+                } else {
+                    results &= slow.follows(name) == fast.follows(name);
+                }
+                results &= slow.getfCount() == fast.getfCount();
+                // Reading the list after some removals, and not after others, so that it is put back in order at random times.
+                if (random.nextInt(20) == 0) {
+                    order &= Arrays.equals(slow.getfFollows(), fast.getfFollows());
+                }
+            }
+            order &= Arrays.equals(slow.getfFollows(), fast.getfFollows());
+            order &= slow.toString().substring(4).equals(fast.toString().substring(4));
+        }
+        System.out.println("Every add, remove and follows gives the same result: " + results);
+        System.out.println("The follows lists are in the same order: " + order);
+
+        System.out.println("\nAll fast removal tests completed.");
+    }
+}
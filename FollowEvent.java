@@ -0,0 +1,61 @@
+/**
+ * A follow or an unfollow, as it arrives on a stream of events, with the time at which it
+ * happened, in milliseconds since the epoch.
+ */
+public class FollowEvent {
+
+    /** Marks the end of a stream of events. */
+    public static final FollowEvent END = new FollowEvent(null, null, false, 0);
+
+    private final String follower;
+    private final String followee;
+    private final boolean follow;
+    private final long timestamp;
+
+    /** Creates an event in which the follower starts (if follow is true) or stops following the followee. */
+    public FollowEvent(String follower, String followee, boolean follow, long timestamp) {
+        this.follower = follower;
+        this.followee = followee;
+        this.follow = follow;
+        this.timestamp = timestamp;
+    }
+
+    /** Returns an event in which the follower starts following the followee now. */
+    public static FollowEvent follow(String follower, String followee) {
+        return new FollowEvent(follower, followee, true, System.currentTimeMillis());
+    }
+
+    /** Returns an event in which the follower stops following the followee now. */
+    public static FollowEvent unfollow(String follower, String followee) {
+        return new FollowEvent(follower, followee, false, System.currentTimeMillis());
+    }
+
+    public String getFollower() {
+        return this.follower;
+    }
+
+    public String getFollowee() {
+        return this.followee;
+    }
+
+    public boolean isFollow() {
+        return this.follow;
+    }
+
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    /**
+     * Applies this event to the given network, at the time of the event. Returns true if it
+     * changed the network, and false if it did not (for example, if the follower already
+     * followed the followee).
+     */
+    public boolean apply(Network network) {
+        return follow ? network.addFollowee(follower, followee, timestamp) : network.removeFollowee(follower, followee, timestamp);
+    }
+
+    public String toString() {
+        return (follow ? "follow " : "unfollow ") + follower + " -> " + followee + " @" + timestamp;
+    }
+}
@@ -0,0 +1,262 @@
+import java.util.Arrays;
+
+/**
+ * Set operations on follow sets, where a set is a sorted array of distinct user ids (only its
+ * first len elements are used), or a bitmap with one bit per user id.
+ * Every operation writes its result, in increasing order, into an output array that the caller
+ * supplies, and returns the number of ids written. The operations that may stop early take a
+ * limit: they stop once they have found that many ids. To count the ids without listing them,
+ * pass null as the output array.
+ *
+ * The intersection picks its algorithm by the sizes of its inputs: a linear merge for sets of
+ * similar sizes, galloping (exponential search) in the larger set when one set is much smaller,
+ * a probe into the bitmap when one set has a bitmap, and a word-by-word AND when both do.
+ */
+public class FollowSets {
+
+    /** When one set is this many times larger than the other, the intersection gallops instead of merging. */
+    static final int GALLOP_RATIO = 16;
+
+    private FollowSets() {
+    }
+
+    /** Intersects two sorted sets. */
+    public static int intersect(int[] a, int aLen, int[] b, int bLen, int[] out, int limit) {
+        if (aLen > bLen) {
+            return intersect(b, bLen, a, aLen, out, limit);
+        }
+        if (aLen == 0 || limit <= 0) {
+            return 0;
+        }
+        if ((long) aLen * GALLOP_RATIO < bLen) {
+            return gallopIntersect(a, aLen, b, bLen, out, limit);
+        }
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < aLen && j < bLen) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                if (out != null) {
+                    out[count] = a[i];
+                }
+                if (++count == limit) {
+                    break;
+                }
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /** Intersects a small sorted set with a much larger one, by galloping through the larger one. */
+    private static int gallopIntersect(int[] small, int smallLen, int[] large, int largeLen, int[] out, int limit) {
+        int count = 0;
+        int from = 0;
+        for (int i = 0; i < smallLen && from < largeLen; i++) {
+            from = gallop(large, from, largeLen, small[i]);
+            if (from < largeLen && large[from] == small[i]) {
+                if (out != null) {
+                    out[count] = small[i];
+                }
+                if (++count == limit) {
+                    break;
+                }
+                from++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the first element of a[from..len) that is not smaller than the key,
+     * or len if there is none. Probes at exponentially growing distances, then binary searches,
+     * so it takes O(log d), where d is the distance from from to the answer.
+     */
+    public static int gallop(int[] a, int from, int len, int key) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < len && a[high] < key) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, len);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (a[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Intersects a sorted set with a bitmap, by probing the bitmap for every element of the set. */
+    public static int intersect(int[] a, int aLen, long[] bits, int[] out, int limit) {
+        int count = 0;
+        for (int i = 0; i < aLen && count < limit; i++) {
+            if (contains(bits, a[i])) {
+                if (out != null) {
+                    out[count] = a[i];
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Intersects two bitmaps, one 64-bit word at a time. */
+    public static int intersect(long[] aBits, long[] bBits, int[] out, int limit) {
+        int words = Math.min(aBits.length, bBits.length);
+        int count = 0;
+        for (int w = 0; w < words && count < limit; w++) {
+            long word = aBits[w] & bBits[w];
+            if (out == null && Long.bitCount(word) <= limit - count) {
+                count += Long.bitCount(word);
+                continue;
+            }
+            while (word != 0 && count < limit) {
+                if (out != null) {
+                    out[count] = (w << 6) + Long.numberOfTrailingZeros(word);
+                }
+                count++;
+                word &= word - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Intersects k sorted sets. Starts from the smallest set and intersects it with the others
+     * in increasing order of size, so the intermediate result only shrinks, and stops as soon as
+     * it is empty. The limit applies to the final result. The sets and lengths arrays are reordered.
+     */
+    public static int intersectAll(int[][] sets, int[] lengths, int k, int[] out, int limit) {
+        if (k == 0 || limit <= 0) {
+            return 0;
+        }
+        sortBySize(sets, lengths, k);
+        if (k == 1) {
+            int count = Math.min(lengths[0], limit);
+            if (out != null) {
+                System.arraycopy(sets[0], 0, out, 0, count);
+            }
+            return count;
+        }
+        int[] current = new int[lengths[0]];
+        int count = intersect(sets[0], lengths[0], sets[1], lengths[1], current, (k == 2) ? limit : Integer.MAX_VALUE);
+        for (int s = 2; s < k && count > 0; s++) {
+            count = intersect(current, count, sets[s], lengths[s], current, (s == k - 1) ? limit : Integer.MAX_VALUE);
+        }
+        if (out != null) {
+            System.arraycopy(current, 0, out, 0, count);
+        }
+        return count;
+    }
+
+    /** Returns the union of two sorted sets. The output array must have room for aLen + bLen ids. */
+    public static int union(int[] a, int aLen, int[] b, int bLen, int[] out) {
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < aLen || j < bLen) {
+            int next;
+            if (j >= bLen || (i < aLen && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i >= aLen || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            if (out != null) {
+                out[count] = next;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /** Returns the ids that are in the first sorted set and not in the second one. */
+    public static int difference(int[] a, int aLen, int[] b, int bLen, int[] out, int limit) {
+        int j = 0;
+        int count = 0;
+        for (int i = 0; i < aLen && count < limit; i++) {
+            j = gallop(b, j, bLen, a[i]);
+            if (j >= bLen || b[j] != a[i]) {
+                if (out != null) {
+                    out[count] = a[i];
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Returns true if the given id is set in the bitmap. */
+    public static boolean contains(long[] bits, int id) {
+        int word = id >>> 6;
+        return word < bits.length && (bits[word] & (1L << id)) != 0;
+    }
+
+    /** Inserts the id into the sorted set, growing the array if needed, and returns the array. The id must not be in the set. */
+    static int[] insert(int[] a, int len, int id) {
+        if (len == a.length) {
+            a = Arrays.copyOf(a, Math.max(4, 2 * len));
+        }
+        int at = gallop(a, 0, len, id);
+        System.arraycopy(a, at, a, at + 1, len - at);
+        a[at] = id;
+        return a;
+    }
+
+    /**
+     * Adds the first bLen ids of the sorted array b, none of which is in the sorted set, to the
+     * set. Returns the set, which is a new array if it had to grow, but grows at most once.
+     */
+    static int[] insertAll(int[] a, int len, int[] b, int bLen) {
+        if (len + bLen > a.length) {
+            a = Arrays.copyOf(a, Math.max(len + bLen, 2 * len));
+        }
+        // Merges from the end, so that every id of the set moves once.
+        int i = len - 1;
+        int j = bLen - 1;
+        for (int k = len + bLen - 1; j >= 0; k--) {
+            a[k] = (i >= 0 && a[i] > b[j]) ? a[i--] : b[j--];
+        }
+        return a;
+    }
+
+    /** Removes the id from the sorted set. Returns false if it was not in the set. */
+    static boolean remove(int[] a, int len, int id) {
+        int at = gallop(a, 0, len, id);
+        if (at >= len || a[at] != id) {
+            return false;
+        }
+        System.arraycopy(a, at + 1, a, at, len - at - 1);
+        return true;
+    }
+
+    /** Sorts the first k sets (and their lengths) by increasing length. k is small, so this is an insertion sort. */
+    private static void sortBySize(int[][] sets, int[] lengths, int k) {
+        for (int i = 1; i < k; i++) {
+            int[] set = sets[i];
+            int length = lengths[i];
+            int j = i - 1;
+            while (j >= 0 && lengths[j] > length) {
+                sets[j + 1] = sets[j];
+                lengths[j + 1] = lengths[j];
+                j--;
+            }
+            sets[j + 1] = set;
+            lengths[j + 1] = length;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+/** Tests the FollowSets class, against TreeSets of the same ids. */
+public class FollowSetsTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the FollowSets class...\n");
+
+        System.out.println("...Intersecting two small sets...");
+        int[] alex = {1, 3, 5, 7, 9};
+        int[] orly = {2, 3, 4, 5, 10};
+        int[] out = new int[5];
+        int count = FollowSets.intersect(alex, alex.length, orly, orly.length, out, Integer.MAX_VALUE);
+        System.out.println("Mutual ids: " + Arrays.toString(Arrays.copyOf(out, count)));
+        System.out.println("Counting without an output array: " + (FollowSets.intersect(alex, 5, orly, 5, null, Integer.MAX_VALUE) == 2));
+        System.out.println("Stopping at a limit of 1: " + (FollowSets.intersect(alex, 5, orly, 5, out, 1) == 1 && out[0] == 3));
+
+        Random random = new Random(34);
+        int universe = 20000;
+
+        System.out.println("\n...Merging sets of similar sizes, and galloping when one is much larger...");
+        boolean merge = true;
+        boolean gallop = true;
+        for (int round = 0; round < 200; round++) {
+            int[] a = randomSet(random, 1 + random.nextInt(300), universe);
+            int[] b = randomSet(random, 1 + random.nextInt(300), universe);
+            // At least 16 times larger than a, so that the intersection gallops through it.
+            int[] big = randomSet(random, 16 * a.length + random.nextInt(5000), universe);
+            merge &= intersects(a, b, random);
+            gallop &= intersects(a, big, random) && intersects(big, a, random);
+        }
+        System.out.println("Merge intersections match: " + merge);
+        System.out.println("Galloping intersections match: " + gallop);
+
+        boolean search = true;
+        int[] sorted = randomSet(random, 1000, universe);
+        for (int i = 0; i < 2000; i++) {
+            int key = random.nextInt(universe + 2) - 1;
+            int from = random.nextInt(sorted.length + 1);
+            int expected = from;
+            while (expected < sorted.length && sorted[expected] < key) {
+                expected++;
+            }
+            search &= FollowSets.gallop(sorted, from, sorted.length, key) == expected;
+        }
+        System.out.println("gallop finds the first element not smaller than the key: " + search);
+
+        System.out.println("\n...Probing a bitmap, and ANDing two bitmaps...");
+        boolean probe = true;
+        boolean and = true;
+        for (int round = 0; round < 200; round++) {
+            int[] a = randomSet(random, random.nextInt(400), universe);
+            int[] b = randomSet(random, random.nextInt(4000), universe);
+            // Bitmaps of different lengths, as a user's bitmap ends at its largest followee.
+            long[] aBits = bitmap(a, universe + random.nextInt(500));
+            long[] bBits = bitmap(b, universe);
+            int[] expected = intersection(a, b);
+            int limit = random.nextBoolean() ? Integer.MAX_VALUE : random.nextInt(expected.length + 1);
+            int expectedCount = Math.min(limit, expected.length);
+            int[] result = new int[expected.length];
+            int n = FollowSets.intersect(a, a.length, bBits, result, limit);
+            probe &= n == expectedCount && Arrays.equals(Arrays.copyOf(result, n), Arrays.copyOf(expected, n));
+            probe &= FollowSets.intersect(a, a.length, bBits, null, limit) == expectedCount;
+            n = FollowSets.intersect(aBits, bBits, result, limit);
+            and &= n == expectedCount && Arrays.equals(Arrays.copyOf(result, n), Arrays.copyOf(expected, n));
+            and &= FollowSets.intersect(aBits, bBits, null, limit) == expectedCount;
+        }
+        System.out.println("Bitmap probes match: " + probe);
+        System.out.println("Bitmap ANDs match, with and without a limit: " + and);
+
+        System.out.println("\n...Intersecting k sets...");
+        boolean kWay = true;
+        for (int round = 0; round < 200; round++) {
+            int k = 1 + random.nextInt(5);
+            int[][] sets = new int[k][];
+            int[] lengths = new int[k];
+            int[] expected = null;
+            for (int i = 0; i < k; i++) {
+                // Dense sets over a small range, so that k of them still have ids in common.
+                sets[i] = randomSet(random, random.nextInt(300), 600);
+                lengths[i] = sets[i].length;
+                expected = (expected == null) ? sets[i] : intersection(expected, sets[i]);
+            }
+            int[] result = new int[600];
+            int n = FollowSets.intersectAll(sets, lengths, k, result, Integer.MAX_VALUE);
+            kWay &= Arrays.equals(Arrays.copyOf(result, n), expected);
+            kWay &= FollowSets.intersectAll(sets, lengths, k, null, 3) == Math.min(3, expected.length);
+        }
+        int[][] disjoint = {{1, 2, 3}, {4, 5, 6}, {1, 2, 3, 4, 5, 6}};
+        kWay &= FollowSets.intersectAll(disjoint, new int[] {3, 3, 6}, 3, new int[6], Integer.MAX_VALUE) == 0;
+        System.out.println("k-way intersections match: " + kWay);
+
+        System.out.println("\n...Union and difference...");
+        boolean union = true;
+        boolean difference = true;
+        for (int round = 0; round < 200; round++) {
+            int[] a = randomSet(random, random.nextInt(300), 1000);
+            int[] b = randomSet(random, random.nextInt(300), 1000);
+            TreeSet<Integer> all = toSet(a);
+            all.addAll(toSet(b));
+            int[] result = new int[a.length + b.length];
+            int n = FollowSets.union(a, a.length, b, b.length, result);
+            union &= Arrays.equals(Arrays.copyOf(result, n), toArray(all));
+            TreeSet<Integer> only = toSet(a);
+            only.removeAll(toSet(b));
+            n = FollowSets.difference(a, a.length, b, b.length, result, Integer.MAX_VALUE);
+            difference &= Arrays.equals(Arrays.copyOf(result, n), toArray(only));
+        }
+        System.out.println("Unions match: " + union);
+        System.out.println("Differences match: " + difference);
+
+        System.out.println("\nAll FollowSets class tests completed.");
+    }
+
+    /** Checks intersect on the two sets, with a random limit, and when only counting. */
+    private static boolean intersects(int[] a, int[] b, Random random) {
+        int[] expected = intersection(a, b);
+        int[] result = new int[Math.min(a.length, b.length)];
+        int n = FollowSets.intersect(a, a.length, b, b.length, result, Integer.MAX_VALUE);
+        boolean ok = Arrays.equals(Arrays.copyOf(result, n), expected);
+        int limit = random.nextInt(expected.length + 1);
+        ok &= FollowSets.intersect(a, a.length, b, b.length, result, limit) == limit;
+        ok &= Arrays.equals(Arrays.copyOf(result, limit), Arrays.copyOf(expected, limit));
+        ok &= FollowSets.intersect(a, a.length, b, b.length, null, Integer.MAX_VALUE) == expected.length;
+        return ok;
+    }
+
+    private static int[] randomSet(Random random, int size, int universe) {
+        TreeSet<Integer> set = new TreeSet<>();
+        while (set.size() < Math.min(size, universe)) {
+            set.add(random.nextInt(universe));
+        }
+        return toArray(set);
+    }
+
+    private static int[] intersection(int[] a, int[] b) {
+        TreeSet<Integer> set = toSet(a);
+        set.retainAll(toSet(b));
+        return toArray(set);
+    }
+
+    private static long[] bitmap(int[] ids, int universe) {
+        long[] bits = new long[(universe + 63) >>> 6];
+        for (int id : ids) {
+            bits[id >>> 6] |= 1L << id;
+        }
+        return bits;
+    }
+
+    private static TreeSet<Integer> toSet(int[] ids) {
+        TreeSet<Integer> set = new TreeSet<>();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    private static int[] toArray(TreeSet<Integer> set) {
+        return set.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
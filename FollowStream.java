@@ -0,0 +1,244 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies a continuous stream of follow and unfollow events to a shared network, in
+ * micro-batches. One thread takes events from a blocking queue, collects them into a batch, and
+ * applies the whole batch under one exclusive lock, so readers wait once per batch and not once
+ * per event. A batch is applied when it reaches maxBatchSize events, or when maxBatchDelay has
+ * passed since its first event, whichever comes first: larger batches give more throughput, and
+ * shorter delays give fresher results. The network keeps its follower counts, follower ranking
+ * and reciprocity up to date as each event is applied (see Network.mostFollowed and
+ * Network.reciprocity), so nothing is recomputed after a batch.
+ *
+ * The events come either from a blocking queue that the caller fills, where a full queue blocks
+ * the producers, or from a Flow.Publisher, which is never asked for more events than fit in the
+ * buffer. In both cases, the stream ends with FollowEvent.END.
+ *
+ * Instead of a network, the batches can also go to any other Sink, such as a PopularitySketch
+ * on a node that cannot hold the whole network.
+ *
+ * If the sink throws a RuntimeException, the stream records it (see getError) and stops
+ * applying events, but keeps taking them from the queue until the end, so producers never
+ * block on a queue that nobody empties. A publisher is cancelled instead.
+ */
+public class FollowStream implements AutoCloseable {
+
+    /** Receives the batches of a stream, one at a time, on the thread of the stream. */
+    public interface Sink {
+        /** Applies the first size events of the batch. Returns the number of events that changed something. */
+        int apply(FollowEvent[] batch, int size);
+    }
+
+    private final Sink sink;
+    private final BlockingQueue<FollowEvent> queue;
+    private int maxBatchSize = 1024;
+    private long maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(5);
+    private Thread thread;
+    private volatile Flow.Subscription subscription;
+    private volatile Throwable error;
+    /** Whether the sink threw. Only the thread of the stream reads and writes it. */
+    private boolean failed;
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    /** Creates a stream that applies the events of the given queue to the given network. */
+    public FollowStream(SharedNetwork network, BlockingQueue<FollowEvent> queue) {
+        this(sink(network), queue);
+    }
+
+    /** Creates a stream that hands the events of the given queue to the given sink. */
+    public FollowStream(Sink sink, BlockingQueue<FollowEvent> queue) {
+        this.sink = sink;
+        this.queue = queue;
+    }
+
+    /**
+     * Creates a stream that applies the events of the given publisher to the given network.
+     * The publisher is asked for at most bufferSize events that were not applied yet.
+     */
+    public static FollowStream subscribe(SharedNetwork network, Flow.Publisher<FollowEvent> publisher, int bufferSize) {
+        return subscribe(sink(network), publisher, bufferSize);
+    }
+
+    /** Creates a stream that hands the events of the given publisher to the given sink, as above. */
+    public static FollowStream subscribe(Sink sink, Flow.Publisher<FollowEvent> publisher, int bufferSize) {
+        FollowStream stream = new FollowStream(sink, new ArrayBlockingQueue<>(bufferSize + 1));
+        publisher.subscribe(stream.new Subscriber(bufferSize));
+        return stream;
+    }
+
+    /** Returns a sink that applies every batch to the network under one exclusive lock. */
+    private static Sink sink(SharedNetwork network) {
+        return (batch, size) -> {
+            int[] changed = new int[1];
+            network.write(n -> {
+                for (int i = 0; i < size; i++) {
+                    if (batch[i].apply(n)) {
+                        changed[0]++;
+                    }
+                }
+            });
+            return changed[0];
+        };
+    }
+
+    /** Sets the largest number of events in a batch. Returns this stream. */
+    public FollowStream maxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        return this;
+    }
+
+    /** Sets the longest time that an event waits for its batch to fill up, in milliseconds. Returns this stream. */
+    public FollowStream maxBatchDelay(long millis) {
+        this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        return this;
+    }
+
+    /** Starts applying events, on a thread of its own. Returns this stream. */
+    public FollowStream start() {
+        thread = new Thread(this::run, "follow-stream");
+        thread.start();
+        return this;
+    }
+
+    /** Waits until the stream ended and all its events were applied. */
+    public void await() throws InterruptedException {
+        thread.join();
+    }
+
+    /**
+     * Ends the stream after the events that are already queued, and waits until they were applied.
+     * If the calling thread is interrupted, stops waiting, and keeps the interrupt flag set.
+     */
+    @Override
+    public void close() {
+        try {
+            queue.put(FollowEvent.END);
+            await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Returns the number of events that were applied. */
+    public long getEventCount() {
+        return events.get();
+    }
+
+    /** Returns the number of events that changed the network (or whatever the sink keeps). */
+    public long getChangeCount() {
+        return changes.get();
+    }
+
+    /** Returns the number of batches that were applied. */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Returns the error with which the publisher ended the stream, or the first exception that the
+     * sink threw, or null if there was none.
+     */
+    public Throwable getError() {
+        return this.error;
+    }
+
+    private void run() {
+        FollowEvent[] batch = new FollowEvent[maxBatchSize];
+        boolean ended = false;
+        try {
+            while (!ended) {
+                FollowEvent first = queue.take();
+                if (first == FollowEvent.END) {
+                    break;
+                }
+                batch[0] = first;
+                int size = 1;
+                long deadline = System.nanoTime() + maxBatchDelayNanos;
+                while (size < batch.length) {
+                    FollowEvent event = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (event == null) {
+                        break;
+                    }
+                    if (event == FollowEvent.END) {
+                        ended = true;
+                        break;
+                    }
+                    batch[size++] = event;
+                }
+                apply(batch, size);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void apply(FollowEvent[] batch, int size) {
+        Flow.Subscription current = subscription;
+        if (!failed) {
+            try {
+                int changed = sink.apply(batch, size);
+                events.addAndGet(size);
+                changes.addAndGet(changed);
+                batches.incrementAndGet();
+            } catch (RuntimeException e) {
+                failed = true;
+                if (error == null) {
+                    error = e;
+                }
+                if (current != null) {
+                    // The publisher sends nothing after a cancel, so the stream ends itself. The
+                    // queue has room for it: the extra place that END takes at the end of a stream.
+                    current.cancel();
+                    queue.offer(FollowEvent.END);
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            batch[i] = null;
+        }
+        if (current != null && !failed) {
+            // The applied events left the buffer, so the publisher may send as many new ones.
+            current.request(size);
+        }
+    }
+
+    /** Moves the events of a publisher into the queue, and never asks for more than it can hold. */
+    private class Subscriber implements Flow.Subscriber<FollowEvent> {
+
+        private final int bufferSize;
+
+        Subscriber(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            FollowStream.this.subscription = subscription;
+            subscription.request(bufferSize);
+        }
+
+        @Override
+        public void onNext(FollowEvent event) {
+            // Cannot block: the publisher sends only what was requested, and the queue has room for it.
+            queue.offer(event);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            FollowStream.this.error = error;
+            queue.offer(FollowEvent.END);
+        }
+
+        @Override
+        public void onComplete() {
+            queue.offer(FollowEvent.END);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Bloom filter of the (lowercase) followee names of one user, so that User.follows can answer
+ * most "no" questions without scanning the follows list. Every name sets k bits, chosen by hashes
+ * of the name; a name whose bits are not all set was never added. A name that was not added may
+ * still find all its bits set by other names (a false positive), so a "maybe" is checked against
+ * the list. With 10 bits per name and k = 7, about 1% of the absent names get a "maybe".
+ *
+ * A small filter fits in a few cache lines anyway. A large one, for a user who follows many
+ * users, is blocked: the k bits of a name all fall in one 512-bit block, so a query touches one
+ * cache line instead of k, for a slightly higher false positive rate.
+ *
+ * Bits cannot be taken out, so after followees are removed the filter is rebuilt from the list
+ * (see User.enableBloomFilter). Every filter counts its answers into a Counts object, which the
+ * filters of all the users of one network share, and which reports how often they answered
+ * "maybe" for a name that was not in the list.
+ */
+public class FolloweeFilter {
+
+    private static final int BITS_PER_NAME = 10;
+    private static final int HASHES = 7;
+    /** The number of longs in a block of a blocked filter: 512 bits, the size of a cache line. */
+    private static final int BLOCK_LONGS = 8;
+
+    private final long[] bits;
+    private final boolean blocked;
+    private final Counts counts;
+
+    /** The outcomes of the queries of some filters, such as those of the users of one network. */
+    public static final class Counts {
+
+        private final LongAdder negatives = new LongAdder();
+        private final LongAdder falsePositives = new LongAdder();
+        private final LongAdder truePositives = new LongAdder();
+
+        /** Returns the number of queries that the filters answered without the follows list. */
+        public long getNegativeCount() {
+            return negatives.sum();
+        }
+
+        /** Returns the number of queries for names that were not in the list, but that the filters let through. */
+        public long getFalsePositiveCount() {
+            return falsePositives.sum();
+        }
+
+        /** Returns the number of queries for names that were in the list. */
+        public long getTruePositiveCount() {
+            return truePositives.sum();
+        }
+
+        /** Returns the observed false positive rate: the fraction of the queries for absent names that the filters let through. */
+        public double falsePositiveRate() {
+            long fp = falsePositives.sum();
+            long absent = fp + negatives.sum();
+            return (absent == 0) ? 0 : (double) fp / absent;
+        }
+
+        /** Sets all the counters back to 0. */
+        public void reset() {
+            negatives.reset();
+            falsePositives.reset();
+            truePositives.reset();
+        }
+    }
+
+    /** Creates an empty filter for up to the given number of names, which counts its queries into the given counts. */
+    public FolloweeFilter(int capacity, Counts counts) {
+        this.counts = counts;
+        int longs = (Math.max(1, capacity) * BITS_PER_NAME + 63) >>> 6;
+        this.blocked = longs > BLOCK_LONGS;
+        // A blocked filter has a whole number of blocks.
+        this.bits = new long[blocked ? (longs + BLOCK_LONGS - 1) / BLOCK_LONGS * BLOCK_LONGS : longs];
+    }
+
+    /** Adds the given lowercase name. */
+    public void add(String key) {
+        probe(key, true);
+    }
+
+    /** Returns false if the given lowercase name was never added, and true if it may have been. */
+    public boolean mightContain(String key) {
+        return probe(key, false);
+    }
+
+    /** Sets (if set is true) or checks the k bits of the name. Returns true if they are all set. */
+    private boolean probe(String key, boolean set) {
+        long h = hash(key);
+        boolean all = true;
+        if (blocked) {
+            // The high half of the hash picks the block, and a second hash gives k 9-bit offsets in it.
+            int base = (int) (((h >>> 32) * (bits.length / BLOCK_LONGS)) >>> 32) * BLOCK_LONGS;
+            long offsets = mix(h);
+            for (int i = 0; i < HASHES; i++, offsets >>>= 9) {
+                int bit = (int) offsets & 511;
+                long mask = 1L << bit;
+                all &= (bits[base + (bit >>> 6)] & mask) != 0;
+                if (set) {
+                    bits[base + (bit >>> 6)] |= mask;
+                }
+            }
+        } else {
+            // Double hashing: the i-th bit is h1 + i * h2.
+            int h1 = (int) h;
+            int h2 = (int) (h >>> 32) | 1;
+            int size = bits.length << 6;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, size);
+                long mask = 1L << bit;
+                all &= (bits[bit >>> 6] & mask) != 0;
+                if (set) {
+                    bits[bit >>> 6] |= mask;
+                }
+            }
+        }
+        return all;
+    }
+
+    /** Returns the counts that this filter counts its queries into. */
+    public Counts getCounts() {
+        return this.counts;
+    }
+
+    /** Counts the outcome of a query: whether the filter said "maybe", and whether the name was really there. */
+    void record(boolean maybe, boolean found) {
+        if (!maybe) {
+            counts.negatives.increment();
+        } else if (found) {
+            counts.truePositives.increment();
+        } else {
+            counts.falsePositives.increment();
+        }
+    }
+
+    /** Hashes the name with FNV-1a, and mixes the result. */
+    private static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    /** The SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
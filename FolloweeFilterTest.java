@@ -0,0 +1,127 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/** Tests the FolloweeFilter class, and the Bloom filters of the User and Network classes. */
+public class FolloweeFilterTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the FolloweeFilter class...\n");
+
+        System.out.println("...Adding 1000 names to a filter...");
+        FolloweeFilter.Counts counts = new FolloweeFilter.Counts();
+        FolloweeFilter filter = new FolloweeFilter(1000, counts);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("in" + i);
+        }
+        boolean added = true;
+        for (int i = 0; i < 1000; i++) {
+            added &= filter.mightContain("in" + i);
+        }
+        int maybes = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("out" + i)) {
+                maybes++;
+            }
+        }
+        System.out.println("Every added name may be in the filter: " + added);
+        // About 1% in theory; a blocked filter has a little more.
+        System.out.println("Fewer than 3% of the other names may be in the filter: " + (maybes < 3000));
+
+        System.out.println("\n...Creating Alex, who follows Ben, Neta and Dana, with a Bloom filter...");
+        User alex = new User("Alex");
+        alex.enableBloomFilter();
+        alex.addFollowee("Ben");
+        alex.addFollowee("Neta");
+        alex.addFollowee("Dana");
+        System.out.println("Alex follows neta: " + alex.follows("neta"));
+        System.out.println("Alex does not follow Gil: " + !alex.follows("Gil"));
+        System.out.println("Adding Ben again is rejected: " + !alex.addFollowee("Ben"));
+        System.out.println("Removing Neta: " + alex.removeFollowee("Neta"));
+        System.out.println("Alex no longer follows Neta: " + !alex.follows("Neta"));
+        System.out.println(alex);
+
+        System.out.println("\n...Removing most of the followees of a user, so that the filter is rebuilt...");
+        User orly = new User("Orly", 80);
+        FolloweeFilter.Counts orlyCounts = new FolloweeFilter.Counts();
+        orly.enableBloomFilter(orlyCounts);
+        for (int i = 0; i < 80; i++) {
+            orly.addFollowee("U" + i);
+        }
+        for (int i = 0; i < 60; i++) {
+            orly.removeFollowee("U" + i);
+        }
+        orlyCounts.reset();
+        boolean removed = true;
+        for (int i = 0; i < 60; i++) {
+            removed &= !orly.follows("U" + i);
+        }
+        System.out.println("Orly follows none of the removed users: " + removed);
+        // Without rebuilds, all 60 would get a "maybe". Fewer than 4 removals are waiting for the next rebuild.
+        System.out.println("Few of the removed users get past the filter: " + (orlyCounts.getFalsePositiveCount() <= 8));
+
+        System.out.println("\n...Comparing random adds, removes and follows with a user without a filter...");
+        Random random = new Random(49);
+        boolean results = true;
+        boolean order = true;
+        FolloweeFilter.Counts shared = new FolloweeFilter.Counts();
+        for (int round = 0; round < 200; round++) {
+            User plain = new User("Plain", 40);
+            User filtered = new User("Filtered", 40);
+            if (round % 2 == 0) {
+                filtered.enableFastRemoval();
+            }
+            // Half of the filters are enabled after some follows, so they start from a list.
+            boolean early = random.nextBoolean();
+            if (early) {
+                filtered.enableBloomFilter(shared);
+            }
+            for (int step = 0; step < 800; step++) {
+                if (!early && step == 100) {
+                    filtered.enableBloomFilter(shared);
+                }
+                String name = (random.nextBoolean() ? "U" : "u") + random.nextInt(120);
+                int op = random.nextInt(6);
+                if (op < 2) {
+                    results &= plain.addFollowee(name) == filtered.addFollowee(name);
+                } else if (op == 2) {
+                    results &= plain.removeFollowee(name) == filtered.removeFollowee(name);
+                } else {
+                    results &= plain.follows(name) == filtered.follows(name);
+                }
+                if (step % 50 == 0) {
+                    order &= Arrays.equals(plain.getfFollows(), filtered.getfFollows());
+                }
+            }
+            order &= plain.toString().substring(5).equals(filtered.toString().substring(8));
+        }
+        System.out.println("Every add, remove and follows gives the same result: " + results);
+        System.out.println("The follows lists are in the same order: " + order);
+        System.out.println("Most absent names are answered by the filters: "
+                + (shared.getNegativeCount() > 10 * shared.getFalsePositiveCount()));
+
+        System.out.println("\n...Enabling Bloom filters in a network...");
+        Network net = new Network(10);
+        net.addUser("Alex");
+        boolean notEnabled = false;
+        try {
+            net.getBloomFilterCounts();
+        } catch (IllegalStateException e) {
+            notEnabled = true;
+        }
+        System.out.println("There are no counts before the filters are enabled: " + notEnabled);
+        net.enableBloomFilters();
+        net.addUser("Orly");
+        net.addFollowee("Alex", "Orly");
+        net.addFollowee("Orly", "Alex");
+        FolloweeFilter.Counts netCounts = net.getBloomFilterCounts();
+        netCounts.reset();
+        net.getUser("Alex").follows("Orly");
+        net.getUser("Orly").follows("Gil");
+        System.out.println("The users share the counts of the network: " + (netCounts.getTruePositiveCount() == 1
+                && netCounts.getNegativeCount() + netCounts.getFalsePositiveCount() == 1));
+        Network other = new Network(10);
+        other.enableBloomFilters();
+        System.out.println("Another network has its own counts: " + (other.getBloomFilterCounts() != netCounts));
+
+        System.out.println("\nAll FolloweeFilter class tests completed.");
+    }
+}
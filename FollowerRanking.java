@@ -0,0 +1,70 @@
+/**
+ * Keeps the users of a network ordered by their number of followers, as follows are added and
+ * removed one at a time. A follow changes a count by one, which moves the user only across the
+ * boundary of its group of users with the same count, so every update takes O(1): the user
+ * swaps places with the first (or last) user of its group, and the boundary moves by one.
+ * Users with the same count are in no particular order.
+ */
+public class FollowerRanking {
+
+    /** The users, by decreasing number of followers. */
+    private final int[] order;
+    /** The index of each user in order. */
+    private final int[] position;
+    /** above[c] is the number of users with more than c followers, which is where the group of c starts. */
+    private final int[] above;
+    private int size;
+
+    /** Creates an empty ranking for the given number of users. */
+    public FollowerRanking(int capacity) {
+        order = new int[capacity];
+        position = new int[capacity];
+        above = new int[capacity + 1];
+    }
+
+    /** Adds a user with no followers. */
+    public void add(int user) {
+        order[size] = user;
+        position[user] = size;
+        size++;
+    }
+
+    /** Removes a user, who must have no followers left. */
+    public void remove(int user) {
+        swap(position[user], size - 1);
+        size--;
+    }
+
+    /** Moves up a user who had the given number of followers, and now has one more. */
+    public void increment(int user, int oldCount) {
+        swap(position[user], above[oldCount]);
+        above[oldCount]++;
+    }
+
+    /** Moves down a user who had the given number of followers, and now has one less. */
+    public void decrement(int user, int oldCount) {
+        above[oldCount - 1]--;
+        swap(position[user], above[oldCount - 1]);
+    }
+
+    /** Returns the ids of the k users with the most followers (or fewer, if there are fewer users), from the most. Takes O(k). */
+    public int[] top(int k) {
+        int[] result = new int[Math.max(0, Math.min(k, size))];
+        System.arraycopy(order, 0, result, 0, result.length);
+        return result;
+    }
+
+    /** Returns the number of users with more than the given number of followers. */
+    public int countAbove(int count) {
+        return (count < 0) ? size : above[count];
+    }
+
+    private void swap(int i, int j) {
+        int a = order[i];
+        int b = order[j];
+        order[i] = b;
+        order[j] = a;
+        position[b] = i;
+        position[a] = j;
+    }
+}
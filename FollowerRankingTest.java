@@ -0,0 +1,110 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/** Tests the FollowerRanking class, and the mostFollowed method of the Network class, against sorted follower counts. */
+public class FollowerRankingTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the FollowerRanking class...\n");
+
+        System.out.println("...Creating Alex, Orly and Idan, where Orly has 2 followers and Idan has 1...");
+        Network net = new Network(10);
+        net.addUser("Alex");
+        net.addUser("Orly");
+        net.addUser("Idan");
+        net.addFollowee("Alex", "Orly");
+        net.addFollowee("Idan", "Orly");
+        net.addFollowee("Alex", "Idan");
+        System.out.println("Most followed: " + Arrays.toString(net.mostFollowed(3)));
+        System.out.println("Asking for more users than there are: " + (net.mostFollowed(10).length == 3));
+        System.out.println("Asking for no users: " + (net.mostFollowed(0).length == 0));
+        System.out.println("\n...Removing Alex -> Orly and Idan -> Orly, and adding Orly -> Idan...");
+        net.removeFollowee("Alex", "Orly");
+        net.removeFollowee("Idan", "Orly");
+        net.addFollowee("Orly", "Idan");
+        System.out.println("Most followed: " + Arrays.toString(net.mostFollowed(1)));
+
+        System.out.println("\n...Comparing random increments and decrements with sorted counts...");
+        Random random = new Random(42);
+        boolean ordered = true;
+        boolean above = true;
+        int users = 200;
+        FollowerRanking ranking = new FollowerRanking(users);
+        int[] counts = new int[users];
+        for (int u = 0; u < users; u++) {
+            ranking.add(u);
+        }
+        for (int step = 0; step < 100000; step++) {
+            int u = random.nextInt(users);
+            // Mostly increments, so that the counts spread over many groups.
+            if (counts[u] > 0 && random.nextInt(3) == 0) {
+                ranking.decrement(u, counts[u]);
+                counts[u]--;
+            } else if (counts[u] < users - 1) {
+                ranking.increment(u, counts[u]);
+                counts[u]++;
+            }
+            if (step % 1000 == 0) {
+                ordered &= isRanked(ranking.top(users), counts, users);
+                int c = random.nextInt(users);
+                above &= ranking.countAbove(c) == countAbove(counts, c);
+            }
+        }
+        ordered &= isRanked(ranking.top(users), counts, users);
+        System.out.println("The top users are ordered by their counts: " + ordered);
+        System.out.println("countAbove matches: " + (above && ranking.countAbove(-1) == users));
+
+        System.out.println("\n...Comparing mostFollowed with sorted follower counts on a network...");
+        boolean top = true;
+        Network network = new Network(users, 30);
+        for (int i = 0; i < users; i++) {
+            network.addUser(GraphGenerator.name(i));
+        }
+        for (int step = 0; step < 20000; step++) {
+            String follower = GraphGenerator.name(random.nextInt(users));
+            // Skewed followees, so that a few users have many more followers than the rest.
+            String followee = GraphGenerator.name((int) (users * Math.pow(random.nextDouble(), 3)));
+            if (random.nextInt(4) == 0) {
+                network.removeFollowee(follower, followee);
+            } else {
+                network.addFollowee(follower, followee);
+            }
+            if (step % 500 == 0) {
+                int[] followers = new int[users];
+                for (int u = 0; u < users; u++) {
+                    followers[u] = network.followerCount(GraphGenerator.name(u));
+                }
+                int[] sorted = followers.clone();
+                Arrays.sort(sorted);
+                String[] names = network.mostFollowed(10);
+                for (int i = 0; i < names.length; i++) {
+                    top &= followers[GraphGenerator.id(names[i])] == sorted[users - 1 - i];
+                }
+            }
+        }
+        System.out.println("mostFollowed gives the users with the most followers: " + top);
+
+        System.out.println("\nAll FollowerRanking class tests completed.");
+    }
+
+    /** Checks that the ranking has every user once, by decreasing count. */
+    private static boolean isRanked(int[] order, int[] counts, int users) {
+        boolean[] seen = new boolean[users];
+        boolean ok = order.length == users;
+        for (int i = 0; i < order.length; i++) {
+            ok &= !seen[order[i]];
+            seen[order[i]] = true;
+            ok &= i == 0 || counts[order[i - 1]] >= counts[order[i]];
+        }
+        return ok;
+    }
+
+    private static int countAbove(int[] counts, int c) {
+        int n = 0;
+        for (int count : counts) {
+            if (count > c) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,118 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event types for the expensive operations of a network.
+ * The query events record the target user, how many candidates were scanned, how many
+ * follow-list intersections were computed, and the size of the result. The bulk load and
+ * snapshot events record where the data came from or went to, and how much of it there was.
+ * The events carry a duration threshold, so a recording that is left on all the time
+ * only keeps the slow calls. The threshold can be changed in a .jfc file or on the
+ * command line, for example: -XX:StartFlightRecording:hw8.RecommendWhoToFollow#threshold=0ms
+ */
+public class GraphEvents {
+
+    private GraphEvents() {
+    }
+
+    /** Emitted by Network.recommendWhoToFollow. */
+    @Name("hw8.RecommendWhoToFollow")
+    @Label("Recommend Who To Follow")
+    @Category("Social Network")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    public static final class Recommend extends Event {
+        @Label("Target User")
+        public String targetUser;
+
+        @Label("Candidates Scanned")
+        @Description("Number of users who share a followee with the target user")
+        public int candidatesScanned;
+
+        @Label("Intersections Computed")
+        @Description("Number of follower entries walked from the followees of the target user")
+        public long intersectionsComputed;
+
+        @Label("Result Size")
+        @Description("1 if a user was recommended, 0 otherwise")
+        public int resultSize;
+    }
+
+    /** Emitted by Network.mostPopularUser. */
+    @Name("hw8.MostPopularUser")
+    @Label("Most Popular User")
+    @Category("Social Network")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    public static final class MostPopular extends Event {
+        @Label("Target User")
+        @Description("The user that was found to be the most popular")
+        public String targetUser;
+
+        @Label("Candidates Scanned")
+        public int candidatesScanned;
+
+        @Label("Intersections Computed")
+        @Description("Number of follow lists that were scanned for each candidate")
+        public long intersectionsComputed;
+
+        @Label("Result Size")
+        public int resultSize;
+    }
+
+    /** Emitted when many users or follows are loaded into a network in one call. */
+    @Name("hw8.BulkLoad")
+    @Label("Bulk Load")
+    @Category("Social Network")
+    @Threshold("100 ms")
+    @StackTrace(false)
+    public static final class BulkLoad extends Event {
+        @Label("Source")
+        @Description("Where the records came from, for example a file name, a generator model or a method")
+        public String source;
+
+        @Label("Records Read")
+        @Description("Number of input records (users and follows) that were read")
+        public long recordsRead;
+
+        @Label("Duplicate Checks")
+        @Description("Number of follows that were checked against the existing follows")
+        public long duplicateChecks;
+
+        @Label("Records Added")
+        @Description("Number of users and follows that were added")
+        public long recordsAdded;
+
+        @Label("Records Rejected")
+        @Description("Number of follows that were not added, because they were repeated or a list was full")
+        public long recordsRejected;
+    }
+
+    /** Emitted when the state of a network is saved, for example into a compressed snapshot. */
+    @Name("hw8.SnapshotSave")
+    @Label("Snapshot Save")
+    @Category("Social Network")
+    @Threshold("100 ms")
+    @StackTrace(false)
+    public static final class SnapshotSave extends Event {
+        @Label("Destination")
+        @Description("The file name, or the kind of in-memory snapshot")
+        public String destination;
+
+        @Label("Users Written")
+        public int userCount;
+
+        @Label("Follows Written")
+        public long followCount;
+
+        @Label("Bytes Written")
+        @DataAmount
+        public long byteCount;
+    }
+}
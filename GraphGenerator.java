@@ -0,0 +1,368 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates synthetic social networks for benchmarks and load tests.
+ * User number i is named "User" + i, and every user follows up to followsPerUser other users.
+ * The generator is deterministic: the same model, size and seed always give the same follows,
+ * no matter how many threads are used. This is because every random number is a hash of the
+ * seed and the index of the follow, instead of the next value of a shared random generator.
+ *
+ * The follows are generated in parallel, in chunks of consecutive users, and are then consumed
+ * in order: either added to a Network, or written out as an edge list with one
+ * "followerId followeeId" line per follow.
+ *
+ * Usage: java GraphGenerator <uniform|preferential|community> <users> <followsPerUser> <seed> [threads] [file]
+ * Writes the edge list to the given file, or to standard output if no file is given.
+ */
+public class GraphGenerator {
+
+    /** The supported graph models. */
+    public enum Model {
+        /** Every followee is picked uniformly at random. */
+        UNIFORM,
+        /**
+         * Barabasi-Albert preferential attachment: users join one by one, and each one follows
+         * earlier users with a probability proportional to their degree. This gives a heavy-tailed
+         * degree distribution that is dominated by a few hubs.
+         */
+        PREFERENTIAL,
+        /**
+         * Users are split into communities of communitySize consecutive users. Each followee is
+         * picked from the follower's own community with probability inCommunity, and from the
+         * whole network otherwise.
+         */
+        COMMUNITY
+    }
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private final Model model;
+    private final int userCount;
+    private final int followsPerUser;
+    private final long seed;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int communitySize = 100;
+    private double inCommunity = 0.9;
+    private long rejected;
+
+    /** Creates a generator for the given model, network size and seed. */
+    public GraphGenerator(Model model, int userCount, int followsPerUser, long seed) {
+        this.model = model;
+        this.userCount = userCount;
+        this.followsPerUser = followsPerUser;
+        this.seed = seed;
+    }
+
+    /** Sets the number of threads that generate follows. Returns this generator. */
+    public GraphGenerator threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /** Sets the community size and the in-community probability of the COMMUNITY model. Returns this generator. */
+    public GraphGenerator communities(int communitySize, double inCommunity) {
+        this.communitySize = Math.max(1, communitySize);
+        this.inCommunity = inCommunity;
+        return this;
+    }
+
+    /** Returns the name of the user with the given number. */
+    public static String name(int id) {
+        return "User" + id;
+    }
+
+    /**
+     * Returns the number of the user with the given name, ignoring case, or -1 if name does not
+     * give that name to any number.
+     */
+    public static int id(String name) {
+        if (name == null || name.length() < 5 || name.length() > 14 || !name.regionMatches(true, 0, "User", 0, 4)) {
+            return -1;
+        }
+        // "User0" is the only name whose number starts with 0.
+        if (name.charAt(4) == '0' && name.length() > 5) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 4; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = 10 * id + (c - '0');
+        }
+        return (id > Integer.MAX_VALUE) ? -1 : (int) id;
+    }
+
+    /**
+     * Returns a new network with room for all the generated users, each of which can follow
+     * followsPerUser users, and adds the generated users and follows to it.
+     */
+    public Network newNetwork() {
+        Network network = new Network(userCount, followsPerUser);
+        populate(network);
+        return network;
+    }
+
+    /**
+     * Adds the generated users and follows to the given network.
+     * Users and follows that the network rejects (because it is full, or because a follows
+     * list is full) are skipped, and counted (see getRejectedCount). A network made with
+     * new Network(users) only lets every user follow User.maxfCount users, so for more follows
+     * per user, make it with new Network(users, followsPerUser), or call newNetwork.
+     * Returns the number of follows that were added.
+     */
+    public long populate(Network network) {
+        GraphEvents.BulkLoad event = new GraphEvents.BulkLoad();
+        event.begin();
+        int added = 0;
+        for (int i = 0; i < userCount; i++) {
+            if (network.addUser(name(i))) {
+                added++;
+            }
+        }
+        long[] follows = new long[1];
+        long records = generate((chunk, count) -> {
+            for (int i = 0; i < count; i++) {
+                int follower = (int) (chunk[i] >>> 32);
+                int followee = (int) chunk[i];
+                if (network.addFollowee(name(follower), name(followee))) {
+                    follows[0]++;
+                }
+            }
+        });
+        rejected = records - follows[0];
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = "generator:" + model.name().toLowerCase();
+            event.recordsRead = userCount + records;
+            event.duplicateChecks = records;
+            event.recordsAdded = added + follows[0];
+            event.recordsRejected = rejected;
+            event.commit();
+        }
+        return follows[0];
+    }
+
+    /** Returns the number of generated follows that the network rejected in the last call to populate. */
+    public long getRejectedCount() {
+        return rejected;
+    }
+
+    /** Writes the generated follows to the given stream, as an edge list. Returns the number of follows written. */
+    public long writeEdgeList(OutputStream out) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        int[] length = new int[1];
+        IOException[] failure = new IOException[1];
+        long count = generate((chunk, n) -> {
+            if (failure[0] != null) {
+                return;
+            }
+            try {
+                for (int i = 0; i < n; i++) {
+                    // Two ints of up to 10 digits each, a space and a newline.
+                    if (length[0] > buffer.length - 22) {
+                        out.write(buffer, 0, length[0]);
+                        length[0] = 0;
+                    }
+                    length[0] = appendInt(buffer, length[0], (int) (chunk[i] >>> 32));
+                    buffer[length[0]++] = ' ';
+                    length[0] = appendInt(buffer, length[0], (int) chunk[i]);
+                    buffer[length[0]++] = '\n';
+                }
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        out.write(buffer, 0, length[0]);
+        out.flush();
+        return count;
+    }
+
+    /** Receives the generated follows of one chunk, in order. */
+    private interface ChunkConsumer {
+        /** Each entry packs a follower id in its high 32 bits and a followee id in its low 32 bits. */
+        void accept(long[] follows, int count);
+    }
+
+    /**
+     * Generates the follows of all users, chunk by chunk, on a pool of threads, and hands the
+     * chunks to the consumer in user order. At most two chunks per thread are in flight, so
+     * memory use does not depend on the size of the graph. Returns the number of follows generated.
+     * If the calling thread is interrupted, stops, and throws a CancellationException with the
+     * interrupt flag set.
+     */
+    private long generate(ChunkConsumer consumer) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<long[]>> inFlight = new ArrayDeque<>();
+        long total = 0;
+        try {
+            int nextChunk = 0;
+            while (nextChunk < userCount || !inFlight.isEmpty()) {
+                while (nextChunk < userCount && inFlight.size() < 2 * threads) {
+                    int from = nextChunk;
+                    int to = (int) Math.min(userCount, (long) from + CHUNK_SIZE);
+                    inFlight.add(pool.submit(() -> generateChunk(from, to)));
+                    nextChunk = to;
+                }
+                long[] chunk = inFlight.poll().get();
+                int count = (int) chunk[chunk.length - 1];
+                consumer.accept(chunk, count);
+                total += count;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CancellationException cancelled = new CancellationException("interrupted after " + total + " follows");
+            cancelled.initCause(e);
+            throw cancelled;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return total;
+    }
+
+    /**
+     * Generates the follows of users from (inclusive) to to (exclusive).
+     * Self-follows and repeated follows are dropped, so a user may end up with fewer than
+     * followsPerUser followees. The last entry of the returned array holds the number of follows.
+     */
+    private long[] generateChunk(int from, int to) {
+        long[] follows = new long[(to - from) * followsPerUser + 1];
+        int count = 0;
+        for (int follower = from; follower < to; follower++) {
+            int start = count;
+            for (int j = 0; j < followsPerUser; j++) {
+                long edge = (long) follower * followsPerUser + j;
+                int followee = followee(follower, edge);
+                if (followee < 0 || followee == follower) {
+                    continue;
+                }
+                long packed = ((long) follower << 32) | followee;
+                boolean repeated = false;
+                for (int k = start; k < count && !repeated; k++) {
+                    repeated = follows[k] == packed;
+                }
+                if (!repeated) {
+                    follows[count++] = packed;
+                }
+            }
+        }
+        follows[follows.length - 1] = count;
+        return follows;
+    }
+
+    /** Returns the followee of the given follow (edge) of the given follower, or -1 if it has none. */
+    private int followee(int follower, long edge) {
+        switch (model) {
+            case UNIFORM:
+                return bounded(random(edge, 0), userCount);
+            case COMMUNITY: {
+                if (unit(random(edge, 1)) >= inCommunity) {
+                    return bounded(random(edge, 0), userCount);
+                }
+                int first = (follower / communitySize) * communitySize;
+                int size = Math.min(communitySize, userCount - first);
+                return first + bounded(random(edge, 0), size);
+            }
+            case PREFERENTIAL:
+                return preferentialTarget(edge);
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Returns the followee of the given edge in the preferential attachment model, using the
+     * method of Batagelj and Brandes: the endpoints of all edges are listed in order (the follower
+     * of edge e at position 2e, its followee at position 2e + 1), and the followee of edge e is
+     * copied from a uniformly random earlier position. Picking a random endpoint picks a user with
+     * probability proportional to its degree. Since each random choice depends only on the seed and
+     * the edge number, a followee can be computed independently of all the others, by following the
+     * chain of copies back to a follower position. The expected length of the chain is 2.
+     */
+    private int preferentialTarget(long edge) {
+        while (true) {
+            if (edge == 0) {
+                return -1;
+            }
+            long position = bounded(random(edge, 0), 2 * edge);
+            if ((position & 1) == 0) {
+                return (int) ((position >>> 1) / followsPerUser);
+            }
+            edge = position >>> 1;
+        }
+    }
+
+    /** Returns a random 64-bit value that depends only on the seed, the edge and the stream. */
+    private long random(long edge, int stream) {
+        return mix(seed ^ mix(edge * 2 + stream));
+    }
+
+    /** The SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Maps a random value to [0, bound). */
+    private static int bounded(long random, int bound) {
+        return (int) bounded(random, (long) bound);
+    }
+
+    private static long bounded(long random, long bound) {
+        return Long.remainderUnsigned(random, bound);
+    }
+
+    /** Maps a random value to [0, 1). */
+    private static double unit(long random) {
+        return (random >>> 11) * 0x1.0p-53;
+    }
+
+    /** Writes the decimal digits of a non-negative int into the buffer. Returns the new length. */
+    private static int appendInt(byte[] buffer, int length, int value) {
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return length + digits;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: java GraphGenerator <uniform|preferential|community> <users> <followsPerUser> <seed> [threads] [file]");
+            return;
+        }
+        GraphGenerator generator = new GraphGenerator(Model.valueOf(args[0].toUpperCase()),
+                Integer.parseInt(args[1]), Integer.parseInt(args[2]), Long.parseLong(args[3]));
+        if (args.length > 4) {
+            generator.threads(Integer.parseInt(args[4]));
+        }
+        long start = System.nanoTime();
+        OutputStream out = (args.length > 5) ? new FileOutputStream(args[5]) : System.out;
+        long count;
+        try (OutputStream buffered = new BufferedOutputStream(out, 1 << 20)) {
+            count = generator.writeEdgeList(buffered);
+        }
+        System.err.println("Generated " + count + " follows in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Records latencies, in nanoseconds, into a fixed number of log-linear buckets.
+ * Each power of two is split into 64 buckets, so a reported percentile is within about 1.6%
+ * of the true value, and recording a value never allocates.
+ * A histogram is not thread-safe: use one per thread, and merge them at the end.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_COUNT];
+    private long total;
+    private long max;
+
+    /** Records one latency. Negative values are recorded as zero. */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucket(value)]++;
+        total++;
+        max = Math.max(max, value);
+    }
+
+    /** Adds the values recorded by the other histogram to this one. */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /** Returns the number of recorded values. */
+    public long getCount() {
+        return this.total;
+    }
+
+    public long getMax() {
+        return this.max;
+    }
+
+    /** Returns the value at the given percentile (between 0 and 100), or 0 if nothing was recorded. */
+    public long percentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestValue(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Values below SUB_COUNT get a bucket each. A larger value goes to the group of its highest
+     * set bit, and to the bucket of the SUB_BITS bits below it in that group.
+     */
+    private static int bucket(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+
+    /** Returns the highest value that falls into the given bucket. */
+    private static long highestValue(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long lowest = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,175 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a JSON-lines trace of requests (see the Request class) against a network, on several
+ * threads, and reports the throughput and the latency percentiles of each operation.
+ *
+ * In the closed-loop model (the default), each thread sends its next request as soon as the
+ * previous one completes. In the open-loop model, requests are sent at a fixed total rate, and
+ * each latency is measured from the time at which the request was due, not from the time at
+ * which a thread got to it. So a stall is charged to every request that queued behind it.
+ *
+ * The first warmup requests of the trace are run the same way, but are not measured.
+ * A request that fails is counted as an error, and its thread goes on with the next one.
+ *
+ * Usage: java LoadDriver <trace.jsonl> [threads=4] [rate=0] [warmup=0] [capacity=100000]
+ * where rate is in requests per second, and 0 means closed-loop.
+ */
+public class LoadDriver {
+
+    private final SharedNetwork network;
+    private final int threads;
+    private final double rate;
+
+    /** Creates a driver with the given number of threads, and the given rate (0 for closed-loop). */
+    public LoadDriver(SharedNetwork network, int threads, double rate) {
+        this.network = network;
+        this.threads = Math.max(1, threads);
+        this.rate = rate;
+    }
+
+    /** Reads all the requests of the given trace file. Lines that cannot be parsed are reported and skipped. */
+    public static List<Request> readTrace(String fileName) throws IOException {
+        List<Request> requests = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    requests.add(Request.parse(line));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Skipping line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * The latencies of one run, one histogram per operation (indexed by Request.Op ordinal), its
+     * elapsed time, and the number of requests that failed (whose latencies are included).
+     */
+    public static class Result {
+        public final LatencyHistogram[] latencies;
+        public final long elapsedNanos;
+        public final long errorCount;
+
+        Result(LatencyHistogram[] latencies, long elapsedNanos, long errorCount) {
+            this.latencies = latencies;
+            this.elapsedNanos = elapsedNanos;
+            this.errorCount = errorCount;
+        }
+    }
+
+    /** Runs requests from (inclusive) to to (exclusive), and returns their latencies. */
+    public Result run(List<Request> requests, int from, int to) throws InterruptedException {
+        int ops = Request.Op.values().length;
+        LatencyHistogram[][] perThread = new LatencyHistogram[threads][ops];
+        AtomicInteger next = new AtomicInteger(from);
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        double intervalNanos = (rate > 0) ? 1e9 / rate : 0;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            LatencyHistogram[] histograms = perThread[t];
+            for (int i = 0; i < ops; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+            workers[t] = new Thread(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < to) {
+                    Request request = requests.get(i);
+                    long begin;
+                    if (intervalNanos > 0) {
+                        begin = start + (long) ((i - from) * intervalNanos);
+                        long wait = begin - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    } else {
+                        begin = System.nanoTime();
+                    }
+                    try {
+                        network.apply(request);
+                    } catch (RuntimeException e) {
+                        errors.incrementAndGet();
+                    }
+                    histograms[request.getOp().ordinal()].record(System.nanoTime() - begin);
+                }
+            }, "load-driver-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        LatencyHistogram[] merged = new LatencyHistogram[ops];
+        for (int i = 0; i < ops; i++) {
+            merged[i] = new LatencyHistogram();
+            for (int t = 0; t < threads; t++) {
+                merged[i].merge(perThread[t][i]);
+            }
+        }
+        return new Result(merged, elapsed, errors.get());
+    }
+
+    /** Returns a table with the throughput and latency percentiles of each operation in the given results. */
+    public static String report(Result result) {
+        double seconds = result.elapsedNanos / 1e9;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-22s %10s %12s %10s %10s %10s %10s%n",
+                "operation", "count", "ops/sec", "p50 us", "p99 us", "p999 us", "max us"));
+        LatencyHistogram all = new LatencyHistogram();
+        for (Request.Op op : Request.Op.values()) {
+            LatencyHistogram h = result.latencies[op.ordinal()];
+            if (h.getCount() > 0) {
+                appendRow(sb, op.getJsonName(), h, seconds);
+                all.merge(h);
+            }
+        }
+        appendRow(sb, "all", all, seconds);
+        if (result.errorCount > 0) {
+            sb.append(result.errorCount).append(" requests failed\n");
+        }
+        return sb.toString();
+    }
+
+    private static void appendRow(StringBuilder sb, String name, LatencyHistogram h, double seconds) {
+        sb.append(String.format("%-22s %10d %12.0f %10.1f %10.1f %10.1f %10.1f%n",
+                name, h.getCount(), h.getCount() / seconds, h.percentile(50) / 1e3,
+                h.percentile(99) / 1e3, h.percentile(99.9) / 1e3, h.getMax() / 1e3));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: java LoadDriver <trace.jsonl> [threads=4] [rate=0] [warmup=0] [capacity=100000]");
+            return;
+        }
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        double rate = (args.length > 2) ? Double.parseDouble(args[2]) : 0;
+        int warmup = (args.length > 3) ? Integer.parseInt(args[3]) : 0;
+        int capacity = (args.length > 4) ? Integer.parseInt(args[4]) : 100000;
+
+        List<Request> requests = readTrace(args[0]);
+        warmup = Math.min(warmup, requests.size());
+        LoadDriver driver = new LoadDriver(new SharedNetwork(new Network(capacity)), threads, rate);
+        System.out.println("Replaying " + requests.size() + " requests on " + threads + " threads, "
+                + ((rate > 0) ? "open-loop at " + rate + " requests/sec" : "closed-loop")
+                + ", " + warmup + " warmup requests");
+        if (warmup > 0) {
+            driver.run(requests, 0, warmup);
+        }
+        System.out.print(report(driver.run(requests, warmup, requests.size())));
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+/**
+ * A set of non-negative long values, stored in one long array with open addressing and linear
+ * probing. Unlike a HashSet of Longs, it does not create an object for each value.
+ * Searches use it for the users they visited, and pair packs two ids into one value, as the
+ * follows of the network are stored (see the LongIntHashMap class).
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = -1;
+
+    private long[] table;
+    private int size;
+
+    /** Creates an empty set. */
+    public LongHashSet() {
+        this(16);
+    }
+
+    /** Creates an empty set that can hold the given number of values before it grows. */
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+    }
+
+    /** Packs the given pair of non-negative ints into one non-negative long. */
+    public static long pair(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    /** Returns the number of values in this set. */
+    public int size() {
+        return this.size;
+    }
+
+    /** Returns true if this set contains the given value. */
+    public boolean contains(long value) {
+        int mask = table.length - 1;
+        for (int i = slot(value, mask); ; i = (i + 1) & mask) {
+            long current = table[i];
+            if (current == value) {
+                return true;
+            }
+            if (current == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /** Adds the given value. Returns true if it was not in this set. */
+    public boolean add(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative value " + value);
+        }
+        if (2 * (size + 1) > table.length) {
+            resize(table.length * 2);
+        }
+        int mask = table.length - 1;
+        for (int i = slot(value, mask); ; i = (i + 1) & mask) {
+            long current = table[i];
+            if (current == value) {
+                return false;
+            }
+            if (current == EMPTY) {
+                table[i] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    /** Removes the given value. Returns true if it was in this set. */
+    public boolean remove(long value) {
+        int mask = table.length - 1;
+        int i = slot(value, mask);
+        while (table[i] != value) {
+            if (table[i] == EMPTY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        // Moves back the values after the hole that would otherwise become unreachable.
+        int hole = i;
+        for (int j = (hole + 1) & mask; table[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(table[j], mask);
+            boolean reachable = (hole <= j) ? (hole < home && home <= j) : (hole < home || home <= j);
+            if (!reachable) {
+                table[hole] = table[j];
+                hole = j;
+            }
+        }
+        table[hole] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /** Removes all the values. */
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int i = slot(value, mask);
+                while (table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = value;
+            }
+        }
+    }
+
+    private static int slot(long value, int mask) {
+        long h = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return (int) (h ^ (h >>> 33)) & mask;
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/** Tests the LongHashSet class, against a HashSet of Longs. */
+public class LongHashSetTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the LongHashSet class...\n");
+
+        System.out.println("...Adding and removing one pair...");
+        LongHashSet follows = new LongHashSet();
+        System.out.println("Adding (1, 2): " + follows.add(LongHashSet.pair(1, 2)));
+        System.out.println("Adding (1, 2) again is rejected: " + !follows.add(LongHashSet.pair(1, 2)));
+        System.out.println("(1, 2) is in the set: " + follows.contains(LongHashSet.pair(1, 2)));
+        System.out.println("(2, 1) is not in the set: " + !follows.contains(LongHashSet.pair(2, 1)));
+        System.out.println("Removing (1, 2): " + follows.remove(LongHashSet.pair(1, 2)));
+        System.out.println("Removing (1, 2) again is rejected: " + !follows.remove(LongHashSet.pair(1, 2)));
+        System.out.println("The set is empty: " + (follows.size() == 0));
+
+        // Values that are multiples of a large power of 2 tend to share slots, which makes long
+        // probe runs, so removals must shift the later values of a run back into the hole.
+        System.out.println("\n...Removing from long runs of colliding values...");
+        LongHashSet set = new LongHashSet(4);
+        List<Long> values = new ArrayList<>();
+        for (long i = 0; i < 2000; i++) {
+            values.add(i << 40);
+            values.add((i << 32) | 7);
+        }
+        for (long value : values) {
+            set.add(value);
+        }
+        Collections.shuffle(values, new Random(33));
+        boolean found = true;
+        for (int i = 0; i < values.size(); i++) {
+            if (i % 2 == 0) {
+                found &= set.remove(values.get(i));
+            }
+        }
+        for (int i = 0; i < values.size(); i++) {
+            found &= set.contains(values.get(i)) == (i % 2 == 1);
+        }
+        System.out.println("After removing every other value, the others are all found: " + found);
+        System.out.println("Size after removals: " + (set.size() == values.size() / 2));
+
+        System.out.println("\n...Comparing random adds and removes with a HashSet...");
+        Random random = new Random(33);
+        LongHashSet small = new LongHashSet();
+        HashSet<Long> expected = new HashSet<>();
+        boolean same = true;
+        for (int step = 0; step < 200000; step++) {
+            // A small range of values, so most adds and removes hit values already there.
+            long value = LongHashSet.pair(random.nextInt(40), random.nextInt(40));
+            int op = random.nextInt(3);
+            if (op == 0) {
+                same &= small.add(value) == expected.add(value);
+            } else if (op == 1) {
+                same &= small.remove(value) == expected.remove(value);
+            } else {
+                same &= small.contains(value) == expected.contains(value);
+            }
+            same &= small.size() == expected.size();
+        }
+        for (long value : expected) {
+            same &= small.contains(value);
+        }
+        System.out.println("Every add, remove and contains agrees with a HashSet: " + same);
+
+        System.out.println("\nAll LongHashSet class tests completed.");
+    }
+}
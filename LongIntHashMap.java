@@ -0,0 +1,134 @@
+import java.util.Arrays;
+
+/**
+ * A map from non-negative long keys to non-negative int values, stored in two arrays with open
+ * addressing and linear probing, as in the LongHashSet class. The network uses it to store its
+ * follows, as (follower id, followee id) pairs packed into longs, each with the index of the
+ * follower in the follower ids of the followee, so that a follow can be taken out of them in O(1).
+ */
+public class LongIntHashMap {
+
+    private static final long EMPTY = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /** Creates an empty map. */
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    /** Creates an empty map that can hold the given number of keys before it grows. */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /** Returns the number of keys in this map. */
+    public int size() {
+        return this.size;
+    }
+
+    /** Returns true if this map contains the given key. */
+    public boolean containsKey(long key) {
+        return get(key) >= 0;
+    }
+
+    /** Returns the value of the given key, or -1 if it is not in this map. */
+    public int get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) {
+                return values[i];
+            }
+            if (current == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /** Sets the value of the given key. Returns true if the key was not in this map. */
+    public boolean put(long key, int value) {
+        if (key < 0 || value < 0) {
+            throw new IllegalArgumentException("negative key " + key + " or value " + value);
+        }
+        if (2 * (size + 1) > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) {
+                values[i] = value;
+                return false;
+            }
+            if (current == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    /** Removes the given key. Returns its value, or -1 if it was not in this map. */
+    public int remove(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) {
+                return -1;
+            }
+            i = (i + 1) & mask;
+        }
+        int value = values[i];
+        // Moves back the keys after the hole that would otherwise become unreachable.
+        int hole = i;
+        for (int j = (hole + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            boolean reachable = (hole <= j) ? (hole < home && home <= j) : (hole < home || home <= j);
+            if (!reachable) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+        return value;
+    }
+
+    /** Removes all the keys. */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                int i = slot(oldKeys[j], mask);
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long h = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return (int) (h ^ (h >>> 33)) & mask;
+    }
+}
@@ -0,0 +1,47 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/** Tests the LongIntHashMap class, against a HashMap of Longs to Integers. */
+public class LongIntHashMapTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the LongIntHashMap class...\n");
+
+        System.out.println("...Putting, changing and removing one pair...");
+        LongIntHashMap follows = new LongIntHashMap();
+        System.out.println("Putting (1, 2) at 0: " + follows.put(LongHashSet.pair(1, 2), 0));
+        System.out.println("Putting (1, 2) again only changes its value: " + !follows.put(LongHashSet.pair(1, 2), 7));
+        System.out.println("The value of (1, 2): " + follows.get(LongHashSet.pair(1, 2)));
+        System.out.println("(2, 1) is not in the map: " + !follows.containsKey(LongHashSet.pair(2, 1)));
+        System.out.println("Removing (1, 2) returns its value: " + (follows.remove(LongHashSet.pair(1, 2)) == 7));
+        System.out.println("Removing (1, 2) again returns -1: " + (follows.remove(LongHashSet.pair(1, 2)) == -1));
+        System.out.println("The map is empty: " + (follows.size() == 0));
+
+        System.out.println("\n...Comparing random puts and removes with a HashMap...");
+        Random random = new Random(46);
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        boolean same = true;
+        for (int step = 0; step < 200000; step++) {
+            // Keys that are multiples of a large power of 2 tend to share slots, which makes long probe runs.
+            long key = random.nextBoolean() ? LongHashSet.pair(random.nextInt(40), random.nextInt(40)) : (long) random.nextInt(64) << 40;
+            int op = random.nextInt(3);
+            if (op == 0) {
+                int value = random.nextInt(1000);
+                same &= map.put(key, value) == (expected.put(key, value) == null);
+            } else if (op == 1) {
+                Integer removed = expected.remove(key);
+                same &= map.remove(key) == ((removed == null) ? -1 : removed);
+            } else {
+                same &= map.get(key) == expected.getOrDefault(key, -1);
+            }
+            same &= map.size() == expected.size();
+        }
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            same &= map.get(entry.getKey()) == entry.getValue();
+        }
+        System.out.println("Every put, remove and get agrees with a HashMap: " + same);
+
+        System.out.println("\nAll LongIntHashMap class tests completed.");
+    }
+}
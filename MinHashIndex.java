@@ -0,0 +1,227 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Finds users with similar follow sets in sublinear time, for approximate recommendations in
+ * networks where the exact count of mutual followees is too slow.
+ *
+ * Every user with followees has a MinHash signature: for each of bands * rows hash functions,
+ * the smallest hash of any of its followees. For two users, the chance that a given entry of
+ * their signatures is equal is the Jaccard similarity of their follow sets, so the fraction of
+ * equal entries estimates it. The signature is split into bands of rows entries, and the users
+ * are put into a bucket per band, by the hash of their entries in that band (locality-sensitive
+ * hashing). Users with similarity s share at least one bucket with probability
+ * 1 - (1 - s^rows)^bands, which is close to 1 above a threshold of about (1 / bands)^(1 / rows),
+ * and close to 0 below it. The candidates of a query are the users in its buckets, which are far
+ * fewer than all the users. More bands find more similar users, at the cost of more candidates
+ * to check; more rows make the threshold sharper and higher.
+ *
+ * Adding a followee can only lower the entries of a signature, so it is updated in
+ * O(bands * rows). Removing one may raise them, so the signature is computed again from the
+ * remaining followees.
+ */
+public class MinHashIndex {
+
+    private final int bands;
+    private final int rows;
+    private final int hashes;
+    private final long[] seeds;
+    /** The signatures, hashes entries per user. */
+    private final int[] signatures;
+    /** The bucket key of every band of every user, valid only for indexed users. */
+    private final long[] keys;
+    private final boolean[] indexed;
+    private final HashMap<Long, Bucket> buckets = new HashMap<>();
+
+    /** The users of one bucket, in no particular order. */
+    private static final class Bucket {
+        int[] users = new int[2];
+        int size;
+    }
+
+    /** Creates an index for the given number of users, with no followees yet. */
+    public MinHashIndex(int capacity, int bands, int rows, long seed) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("bands and rows must be positive");
+        }
+        // All the signatures share one array, and every offset in it is below its length,
+        // so checking the length once keeps the int offsets from overflowing.
+        long length = (long) Math.max(0, capacity) * bands * rows;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("the signatures of " + capacity + " users with " + bands + " bands of "
+                    + rows + " rows take " + length + " entries, more than one array can hold");
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.hashes = bands * rows;
+        this.seeds = new long[hashes];
+        for (int i = 0; i < hashes; i++) {
+            seeds[i] = mix(seed + (i + 1) * 0x9E3779B97F4A7C15L);
+        }
+        this.signatures = new int[capacity * hashes];
+        Arrays.fill(signatures, Integer.MAX_VALUE);
+        this.keys = new long[capacity * bands];
+        this.indexed = new boolean[capacity];
+    }
+
+    public int getBands() {
+        return this.bands;
+    }
+
+    public int getRows() {
+        return this.rows;
+    }
+
+    /** Adds the followee to the follow set of the user. */
+    public void add(int user, int followee) {
+        boolean changed = false;
+        int base = user * hashes;
+        for (int i = 0; i < hashes; i++) {
+            int h = hash(i, followee);
+            if (h < signatures[base + i]) {
+                signatures[base + i] = h;
+                changed = true;
+            }
+        }
+        if (changed || !indexed[user]) {
+            reindex(user);
+        }
+    }
+
+    /** Sets the follow set of the user to the first count ids in the given array. */
+    public void set(int user, int[] followees, int count) {
+        int base = user * hashes;
+        Arrays.fill(signatures, base, base + hashes, Integer.MAX_VALUE);
+        for (int j = 0; j < count; j++) {
+            for (int i = 0; i < hashes; i++) {
+                signatures[base + i] = Math.min(signatures[base + i], hash(i, followees[j]));
+            }
+        }
+        if (count == 0) {
+            unindex(user);
+        } else {
+            reindex(user);
+        }
+    }
+
+    /** Returns the estimated Jaccard similarity of the follow sets of the two users. */
+    public double similarity(int a, int b) {
+        if (!indexed[a] || !indexed[b]) {
+            return 0;
+        }
+        int equal = 0;
+        for (int i = 0, baseA = a * hashes, baseB = b * hashes; i < hashes; i++) {
+            if (signatures[baseA + i] == signatures[baseB + i]) {
+                equal++;
+            }
+        }
+        return (double) equal / hashes;
+    }
+
+    /** Decides whether a candidate may be returned by top. */
+    public interface Filter {
+        boolean accept(int candidate);
+    }
+
+    /**
+     * Returns up to k users that share a bucket with the given user and that the filter accepts,
+     * by decreasing estimated similarity, and by id when equal.
+     */
+    public int[] top(int user, int k, Filter filter) {
+        if (!indexed[user] || k <= 0) {
+            return new int[0];
+        }
+        LongHashSet seen = new LongHashSet();
+        int[] candidates = new int[16];
+        int count = 0;
+        for (int b = 0; b < bands; b++) {
+            Bucket bucket = buckets.get(keys[user * bands + b]);
+            for (int i = 0; i < bucket.size; i++) {
+                int candidate = bucket.users[i];
+                if (candidate != user && seen.add(candidate) && filter.accept(candidate)) {
+                    if (count == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, 2 * count);
+                    }
+                    candidates[count++] = candidate;
+                }
+            }
+        }
+        // Sorts by similarity, packed with the id into longs, so no objects are created per candidate.
+        long[] ranked = new long[count];
+        for (int i = 0; i < count; i++) {
+            int equal = (int) Math.round(similarity(user, candidates[i]) * hashes);
+            ranked[i] = ((long) (hashes - equal) << 32) | candidates[i];
+        }
+        Arrays.sort(ranked);
+        int[] result = new int[Math.min(k, count)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) ranked[i];
+        }
+        return result;
+    }
+
+    /** Puts the user into the buckets of its current signature, moving it out of its old buckets. */
+    private void reindex(int user) {
+        for (int b = 0; b < bands; b++) {
+            long key = bandKey(user, b);
+            long old = keys[user * bands + b];
+            if (indexed[user] && old == key) {
+                continue;
+            }
+            if (indexed[user]) {
+                remove(old, user);
+            }
+            keys[user * bands + b] = key;
+            Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket());
+            if (bucket.size == bucket.users.length) {
+                bucket.users = Arrays.copyOf(bucket.users, 2 * bucket.size);
+            }
+            bucket.users[bucket.size++] = user;
+        }
+        indexed[user] = true;
+    }
+
+    /** Takes the user out of all its buckets. */
+    private void unindex(int user) {
+        if (indexed[user]) {
+            for (int b = 0; b < bands; b++) {
+                remove(keys[user * bands + b], user);
+            }
+            indexed[user] = false;
+        }
+    }
+
+    private void remove(long key, int user) {
+        Bucket bucket = buckets.get(key);
+        for (int i = 0; i < bucket.size; i++) {
+            if (bucket.users[i] == user) {
+                bucket.users[i] = bucket.users[--bucket.size];
+                break;
+            }
+        }
+        if (bucket.size == 0) {
+            buckets.remove(key);
+        }
+    }
+
+    /** Returns the bucket key of one band of the signature of the user. The band number is part of the key. */
+    private long bandKey(int user, int band) {
+        long h = band;
+        int from = user * hashes + band * rows;
+        for (int i = from; i < from + rows; i++) {
+            h = mix(h * 31 + signatures[i]);
+        }
+        return h;
+    }
+
+    private int hash(int function, int id) {
+        return (int) mix(seeds[function] ^ id);
+    }
+
+    /** The SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/** Tests the MinHashIndex class, against the exact Jaccard similarities of the follow sets. */
+public class MinHashIndexTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the MinHashIndex class...\n");
+
+        System.out.println("...Indexing users 0 and 1 with the same followees, and user 2 with others...");
+        MinHashIndex index = new MinHashIndex(4, 16, 8, 40);
+        for (int followee = 10; followee < 20; followee++) {
+            index.add(0, followee);
+            index.add(1, followee);
+            index.add(2, followee + 100);
+        }
+        System.out.println("Similarity of users 0 and 1: " + index.similarity(0, 1));
+        System.out.println("Similarity of users 0 and 2: " + index.similarity(0, 2));
+        System.out.println("Similarity with user 3, who follows no one: " + index.similarity(0, 3));
+        System.out.println("User 0 is most similar to user 1: " + Arrays.toString(index.top(0, 3, candidate -> true)));
+        System.out.println("The filter is applied: " + (index.top(0, 3, candidate -> candidate != 1).length == 0));
+        index.set(1, new int[] {110, 111, 112, 113, 114, 115, 116, 117, 118, 119}, 10);
+        System.out.println("After setting the followees of user 1 to those of user 2, they are most similar: "
+                + Arrays.toString(index.top(2, 3, candidate -> true)));
+
+        System.out.println("\n...Estimating similarities of random pairs of follow sets...");
+        Random random = new Random(40);
+        int bands = 16;
+        int rows = 8;
+        int hashes = bands * rows;
+        int pairs = 500;
+        MinHashIndex estimates = new MinHashIndex(2 * pairs, bands, rows, 40);
+        int within = 0;
+        double sumOfErrors = 0;
+        boolean incremental = true;
+        for (int pair = 0; pair < pairs; pair++) {
+            // Two sets of 100 followees, of which shared are in both, in a range of their own.
+            int shared = random.nextInt(101);
+            int[] a = new int[100];
+            int[] b = new int[100];
+            for (int i = 0; i < 100; i++) {
+                a[i] = pair * 1000 + i;
+                b[i] = (i < shared) ? a[i] : pair * 1000 + 100 + i;
+            }
+            double jaccard = shared / (200.0 - shared);
+            estimates.set(2 * pair, a, a.length);
+            for (int followee : b) {
+                estimates.add(2 * pair + 1, followee);
+            }
+            double estimate = estimates.similarity(2 * pair, 2 * pair + 1);
+            double error = estimate - jaccard;
+            sumOfErrors += error;
+            // The number of equal entries is binomial, with a standard deviation of sqrt(J (1 - J) / hashes).
+            if (Math.abs(error) <= 3 * Math.sqrt(jaccard * (1 - jaccard) / hashes) + 1e-9) {
+                within++;
+            }
+            estimates.set(2 * pair + 1, b, b.length);
+            incremental &= estimates.similarity(2 * pair, 2 * pair + 1) == estimate;
+        }
+        System.out.println("At least 97% of the estimates are within 3 standard deviations: " + (within >= 0.97 * pairs));
+        System.out.println("The estimates are unbiased: " + (Math.abs(sumOfErrors / pairs) < 0.01));
+        System.out.println("Adding followees one by one gives the same signature as setting them: " + incremental);
+
+        System.out.println("\n...Finding similar users in the LSH buckets...");
+        // With 16 bands of 4 rows, the threshold is about (1 / 16)^(1 / 4) = 0.5.
+        MinHashIndex buckets = new MinHashIndex(2 * pairs, 16, 4, 40);
+        int similarFound = 0;
+        int dissimilarFound = 0;
+        for (int pair = 0; pair < pairs; pair++) {
+            // A Jaccard similarity of 89 / 111 = 0.8 for even pairs, and 18 / 182 = 0.1 for odd ones.
+            int shared = (pair % 2 == 0) ? 89 : 18;
+            int[] a = new int[100];
+            int[] b = new int[100];
+            for (int i = 0; i < 100; i++) {
+                a[i] = pair * 1000 + i;
+                b[i] = (i < shared) ? a[i] : pair * 1000 + 100 + i;
+            }
+            buckets.set(2 * pair, a, a.length);
+            buckets.set(2 * pair + 1, b, b.length);
+        }
+        for (int pair = 0; pair < pairs; pair++) {
+            int[] top = buckets.top(2 * pair, 1, candidate -> true);
+            boolean found = top.length == 1 && top[0] == 2 * pair + 1;
+            if (found && pair % 2 == 0) {
+                similarFound++;
+            } else if (found) {
+                dissimilarFound++;
+            }
+        }
+        // 1 - (1 - 0.8^4)^16 is over 99.9%, and 1 - (1 - 0.1^4)^16 is under 0.2%.
+        System.out.println("At least 99% of the similar users are found: " + (similarFound >= 0.99 * pairs / 2));
+        System.out.println("At most 2% of the dissimilar users are found: " + (dissimilarFound <= 0.02 * pairs / 2));
+
+        System.out.println("\n...Recommending users in a network...");
+        Network net = new Network(10);
+        for (String name : new String[] {"Alex", "Orly", "Idan", "Keren", "Neta", "Gil"}) {
+            net.addUser(name);
+        }
+        boolean notEnabled = false;
+        try {
+            net.approximateRecommendations("Alex", 1);
+        } catch (IllegalStateException e) {
+            notEnabled = true;
+        }
+        System.out.println("There are no recommendations before MinHash is enabled: " + notEnabled);
+        net.enableMinHash(16, 2, 40);
+        for (String followee : new String[] {"Idan", "Keren", "Neta"}) {
+            net.addFollowee("Alex", followee);
+            net.addFollowee("Orly", followee);
+        }
+        System.out.println("Alex is recommended Orly: " + Arrays.toString(net.approximateRecommendations("Alex", 3)));
+        net.addFollowee("Alex", "Orly");
+        System.out.println("Once Alex follows Orly, Orly is no longer recommended: "
+                + (net.approximateRecommendations("Alex", 3).length == 0));
+        System.out.println("No recommendations for an unknown user: " + (net.approximateRecommendations("Dan", 3) == null));
+
+        System.out.println("\nAll MinHashIndex class tests completed.");
+    }
+}
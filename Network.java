@@ -1,16 +1,108 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * Represents a social network. The network has users, who follow other users.
  * Each user is an instance of the User class.
+ * Each user also has an id, which is its index in the users array. The network keeps an index
+ * from (lowercase) names to ids, and the set of all the follows as (follower id, followee id)
+ * pairs, so that it can check a follow in O(1). For the set operations on follow sets, it keeps
+ * the followees of each user as a sorted array of ids, and, for users who follow a large part of
+ * the network, also as a bitmap (see the FollowSets class). For searches in the reverse
+ * direction, it also keeps the followers of each user as an (unsorted) array of ids.
+ * These indexes are kept up to date only when follows are changed through the network, and not
+ * through the User objects directly.
+ * When a user is removed, its slot in the users array becomes free, and the next new user gets
+ * it, so ids stay below the maximum number of users. Methods that return one value per id give
+ * free slots -1 or 0.
  */
 public class Network {
 
     private User[] users;    
+    /** The number of followees that each user can have. */
+    private final int maxFolloweeCount;
+    /** The number of slots in use, including the free slots of removed users. */
     private int userCount;   
+    /** The free slots, which addUser gives out from the last one freed. */
+    private int[] freeIds;
+    private int freeIdCount;
+    private int compactCursor;
+    private HashMap<String, Integer> ids;
+    /** The follows, each with the index of the follower in the follower ids of the followee. */
+    private LongIntHashMap follows;
+    private int friendPairCount;
+    private int[][] followeeIds;
+    private int[] followeeIdCounts;
+    private long[][] followeeBits;
+    private int[][] followerIds;
+    private int[] followerIdCounts;
+    private FollowerRanking ranking;
+    /** Search and scoring buffers, one per core, that queries borrow (see ScratchPool). */
+    private final ScratchPool<PathSearch> pathSearches;
+    private final ScratchPool<CandidateScores> candidateScores;
+    private Scoring scoring = Scoring.RAW;
+    private boolean fastRemoval;
+    /** The counts of the Bloom filters of all the users, or null if they are not enabled. */
+    private FolloweeFilter.Counts filterCounts;
+    /** The followees added by one addFollowees batch, reused by the next one. */
+    private int[] batchIds = new int[16];
+    private MinHashIndex minHash;
+    private ReachSketches reach;
+    private TrendingIndex[] trending = new TrendingIndex[0];
+    private WindowedCounts windowed;
+    /** The number of changes to the users and follows of this network so far. */
+    private int modCount;
+    private PageRank pageRank = new PageRank();
+    private int maxStaleChanges;
+    private double[] ranks;
+    private int ranksModCount;
+    /** The weak components, kept up to date as follows are added, unless weakStale is set. */
+    private UnionFind weakSets;
+    private int weakComponentCount;
+    private boolean weakStale;
+    private int[] strongComponents;
+    private int strongComponentCount;
+    private int strongModCount;
+    private long[] triangles;
+    private int trianglesModCount;
 
     /** Creates a network with a given maximum number of users. */
     public Network(int maxUserCount) {
+        this(maxUserCount, User.maxfCount);
+    }
+
+    /**
+     * Creates a network with a given maximum number of users, whose users can each follow up to
+     * the given number of users, instead of User.maxfCount.
+     */
+    public Network(int maxUserCount, int maxFolloweeCount) {
+        if (maxFolloweeCount < 0) {
+            throw new IllegalArgumentException("maxFolloweeCount is negative: " + maxFolloweeCount);
+        }
+        this.maxFolloweeCount = maxFolloweeCount;
         this.users = new User[maxUserCount];
         this.userCount = 0;
+        this.freeIds = new int[maxUserCount];
+        this.ids = new HashMap<>();
+        this.follows = new LongIntHashMap();
+        this.followeeIds = new int[maxUserCount][];
+        this.followeeIdCounts = new int[maxUserCount];
+        this.followeeBits = new long[maxUserCount][];
+        this.followerIds = new int[maxUserCount][];
+        this.followerIdCounts = new int[maxUserCount];
+        this.ranking = new FollowerRanking(maxUserCount);
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.pathSearches = new ScratchPool<>(cores, () -> new PathSearch(maxUserCount));
+        this.candidateScores = new ScratchPool<>(cores, () -> new CandidateScores(maxUserCount));
+        this.weakSets = new UnionFind(maxUserCount);
     }
 
     /**
@@ -24,11 +116,16 @@ public class Network {
         users[1] = new User("Bar");
         users[2] = new User("Baz");
         userCount = 3;
+        for (int i = 0; i < userCount; i++) {
+            ids.put(users[i].getName().toLowerCase(), i);
+            ranking.add(i);
+        }
+        weakComponentCount = userCount;
     }
 
     /** Returns how many users are currently in this network. */
     public int getUserCount() {
-        return this.userCount;
+        return this.userCount - this.freeIdCount;
     }
 
     /**
@@ -37,16 +134,25 @@ public class Network {
      * Notice that the method receives a String, and returns a User object.
      */
     public User getUser(String name) {
+        int id = idOf(name);
+        return (id < 0) ? null : users[id];
+    }
+
+    /**
+     * Returns the id of the user with the given name: its slot in this network, as used by
+     * CompressedAdjacency. If there is no such user, returns -1.
+     */
+    public int getId(String name) {
+        return idOf(name);
+    }
+
+    /** Returns the id of the user with the given name, or -1 if there is no such user. */
+    private int idOf(String name) {
         if (name == null) {
-            return null;
-        }
-        String nameLower = name.toLowerCase();
-        for (int i = 0; i < userCount; i++) {
-            if (users[i].getName().toLowerCase().equals(nameLower)) {
-                return users[i];
-            }
+            return -1;
         }
-        return null;
+        Integer id = ids.get(name.toLowerCase());
+        return (id == null) ? -1 : id;
     }
 
     /**
@@ -56,14 +162,25 @@ public class Network {
      * Otherwise, creates a new user with the given name, adds the user to this network, and returns true.
      */
     public boolean addUser(String name) {
-        if (userCount >= users.length) {
+        if (name == null || getUserCount() >= users.length) {
             return false;
         }
         if (getUser(name) != null) {
             return false;
         }
-        users[userCount] = new User(name);
-        userCount++;
+        int id = (freeIdCount > 0) ? freeIds[--freeIdCount] : userCount++;
+        users[id] = new User(name, maxFolloweeCount);
+        if (fastRemoval) {
+            users[id].enableFastRemoval();
+        }
+        if (filterCounts != null) {
+            users[id].enableBloomFilter(filterCounts);
+        }
+        ids.put(name.toLowerCase(), id);
+        ranking.add(id);
+        // A free slot has no follows, so it was a weak component on its own, which is not counted.
+        weakComponentCount++;
+        modCount++;
         return true;
     }
 
@@ -73,77 +190,873 @@ public class Network {
      * or if the "addFollowee" call fails (already follows or list is full), returns false.
      */
     public boolean addFollowee(String name1, String name2) {
+        return addFollowee(name1, name2, System.currentTimeMillis());
+    }
+
+    /**
+     * Makes the user with name1 follow the user with name2, as addFollowee above, and records
+     * that this follow happened at the given time, in milliseconds since the epoch.
+     */
+    public boolean addFollowee(String name1, String name2, long timestamp) {
         
-        User user1 = getUser(name1);
-        User user2 = getUser(name2);
+        int id1 = idOf(name1);
+        int id2 = idOf(name2);
 
-        if (user1 == null || user2 == null) {
+        if (id1 < 0 || id2 < 0) {
             return false;
         }
 
-        if (user1 == user2) {
+        if (id1 == id2) {
             return false;
         }
 
-        return user1.addFollowee(name2); 
+        if (!users[id1].addFollowee(name2)) {
+            return false;
+        }
+        if (follows.containsKey(LongHashSet.pair(id2, id1))) {
+            friendPairCount++;
+        }
+        addFolloweeId(id1, id2);
+        followed(id1, id2, timestamp);
+        return true;
+    }
+
+    /** Updates the indexes that do not depend on the sorted followee ids of id1 after it started to follow id2. */
+    private void followed(int id1, int id2, long timestamp) {
+        if (!weakStale && weakSets.union(id1, id2)) {
+            weakComponentCount--;
+        }
+        if (minHash != null) {
+            minHash.add(id1, id2);
+        }
+        if (reach != null) {
+            reach.follow(id1, id2, followeeIds, followeeIdCounts);
+        }
+        for (TrendingIndex index : trending) {
+            index.record(id2, timestamp, true);
+        }
+        if (windowed != null) {
+            windowed.record(id2, timestamp, 1);
+        }
+        modCount++;
     }
 
     /**
-     * For the user with the given name, recommends another user to follow. 
-     * The recommended user is the one that has the maximal number of mutual followees
-     * with this user. If there's a tie, you can return the first or any one of them.
-     * If the user doesn't exist or there's no possible recommendation, returns null.
+     * Makes the user with the given name follow each of the given users, as addFollowee does,
+     * but resolves the follower once, checks each followee against the set of follows instead of
+     * the follows list, and grows the sorted followee ids of the follower once for the whole
+     * batch. If results is not null, writes whether each follow was added into it, in the order
+     * of the followees, so that one buffer can be reused for many batches. Returns the number of
+     * follows added. If the first name is not a user in this network, adds nothing.
      */
-    public String recommendWhoToFollow(String name) {
-        User currentUser = getUser(name);
-        if (currentUser == null) {
-            return null; // user not found
+    public int addFollowees(String follower, Collection<String> followees, boolean[] results) {
+        if (results != null && results.length < followees.size()) {
+            throw new IllegalArgumentException("results has room for " + results.length + " of " + followees.size() + " followees");
         }
+        GraphEvents.BulkLoad event = new GraphEvents.BulkLoad();
+        event.begin();
+        int added = addFollowees(idOf(follower), followees, results, 0, System.currentTimeMillis());
+        commit(event, followees.size(), added);
+        return added;
+    }
 
-        String[] currentFollows = currentUser.getfFollows();
-        int currentFCount = currentUser.getfCount();
+    /**
+     * Makes each user named by a key of the map follow the users in its value, as the
+     * addFollowees above. The results are in the order of the entries of the map, and then of
+     * their followees. Returns the number of follows added.
+     */
+    public int addFollowees(Map<String, ? extends Collection<String>> followees, boolean[] results) {
+        long total = 0;
+        for (Collection<String> names : followees.values()) {
+            total += names.size();
+        }
+        if (results != null && results.length < total) {
+            throw new IllegalArgumentException("results has room for " + results.length + " of " + total + " followees");
+        }
+        GraphEvents.BulkLoad event = new GraphEvents.BulkLoad();
+        event.begin();
+        long timestamp = System.currentTimeMillis();
+        int added = 0;
+        int offset = 0;
+        for (Map.Entry<String, ? extends Collection<String>> entry : followees.entrySet()) {
+            added += addFollowees(idOf(entry.getKey()), entry.getValue(), results, offset, timestamp);
+            offset += entry.getValue().size();
+        }
+        commit(event, total, added);
+        return added;
+    }
 
-        int bestIntersectionCount = -1;
-        User bestCandidate = null;
+    private static void commit(GraphEvents.BulkLoad event, long read, int added) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = "Network.addFollowees";
+            event.recordsRead = read;
+            event.duplicateChecks = read;
+            event.recordsAdded = added;
+            event.recordsRejected = read - added;
+            event.commit();
+        }
+    }
 
+    /** Adds the follows of one batch, writing their results from the given offset. Returns the number added. */
+    private int addFollowees(int id1, Collection<String> followees, boolean[] results, int offset, long timestamp) {
+        if (batchIds.length < followees.size()) {
+            batchIds = new int[Math.max(followees.size(), 2 * batchIds.length)];
+        }
+        int[] batch = batchIds;
+        int count = 0;
+        int i = offset;
+        for (String name : followees) {
+            int id2 = idOf(name);
+            boolean added = id1 >= 0 && id2 >= 0 && id1 != id2
+                && !follows.containsKey(LongHashSet.pair(id1, id2)) && users[id1].appendFollowee(name);
+            if (added) {
+                if (follows.containsKey(LongHashSet.pair(id2, id1))) {
+                    friendPairCount++;
+                }
+                addFollowerId(id2, id1);
+                followed(id1, id2, timestamp);
+                batch[count++] = id2;
+            }
+            if (results != null) {
+                results[i] = added;
+            }
+            i++;
+        }
+        if (count > 0) {
+            Arrays.sort(batch, 0, count);
+            addFolloweeIds(id1, batch, count);
+        }
+        return count;
+    }
+
+    /**
+     * Makes the user with name1 stop following the user with name2. If successful, returns true.
+     * If any of the two names is not a user in this network, or if the first user does not
+     * follow the second one, returns false.
+     */
+    public boolean removeFollowee(String name1, String name2) {
+        return removeFollowee(name1, name2, System.currentTimeMillis());
+    }
+
+    /**
+     * Makes the user with name1 stop following the user with name2, as removeFollowee above,
+     * and records that this happened at the given time, in milliseconds since the epoch.
+     */
+    public boolean removeFollowee(String name1, String name2, long timestamp) {
+        int id1 = idOf(name1);
+        int id2 = idOf(name2);
+        return id1 >= 0 && id2 >= 0 && removeFollow(id1, id2, timestamp);
+    }
+
+    /** Makes user id1 stop following user id2, and updates the indexes. Returns false if it did not follow it. */
+    private boolean removeFollow(int id1, int id2, long timestamp) {
+        if (!users[id1].removeFollowee(users[id2].getName())) {
+            return false;
+        }
+        unindexFollow(id1, id2, timestamp);
+        return true;
+    }
+
+    /** Takes the follow of user id1 to user id2 out of the indexes, whether or not the follows list of id1 still has it. */
+    private void unindexFollow(int id1, int id2, long timestamp) {
+        int position = follows.remove(LongHashSet.pair(id1, id2));
+        if (position < 0) {
+            return;
+        }
+        if (follows.containsKey(LongHashSet.pair(id2, id1))) {
+            friendPairCount--;
+        }
+        removeFolloweeId(id1, id2);
+        removeFollowerId(id2, position);
+        // A union-find cannot split a set, so the weak components are rebuilt when they are next needed.
+        weakStale = true;
+        if (minHash != null) {
+            minHash.set(id1, followeeIds[id1], followeeIdCounts[id1]);
+        }
+        if (reach != null) {
+            reach.unfollow(id1, id2, followerIds, followerIdCounts, followeeIds, followeeIdCounts);
+        }
+        for (TrendingIndex index : trending) {
+            index.record(id2, timestamp, false);
+        }
+        if (windowed != null) {
+            windowed.record(id2, timestamp, -1);
+        }
+        modCount++;
+    }
+
+    /**
+     * Removes the user with the given name from this network, with all its follows, in either
+     * direction. If successful, returns true. If there is no such user, returns false.
+     */
+    public boolean removeUser(String name) {
+        return removeUser(name, System.currentTimeMillis());
+    }
+
+    /**
+     * Removes the user with the given name, as removeUser above, and records that its follows
+     * ended at the given time, in milliseconds since the epoch. Takes O(d) besides the indexes
+     * that were enabled, where d is the number of its followees and followers: its own id lists
+     * are dropped whole, each follow is taken out of the list of the other user only (by its
+     * position in the follower ids, or from the short sorted followee ids of a follower), its
+     * name is taken out of the follow list of each of its followers, and its slot is freed for
+     * the next new user.
+     */
+    public boolean removeUser(String name, long timestamp) {
+        int id = idOf(name);
+        if (id < 0) {
+            return false;
+        }
+        int[] followees = followeeIds[id];
+        int followeeCount = followeeIdCounts[id];
+        for (int i = 0; i < followeeCount; i++) {
+            int followee = followees[i];
+            removeFollowerId(followee, follows.remove(LongHashSet.pair(id, followee)));
+            if (follows.containsKey(LongHashSet.pair(followee, id))) {
+                friendPairCount--;
+            }
+            for (TrendingIndex index : trending) {
+                index.record(followee, timestamp, false);
+            }
+            if (windowed != null) {
+                windowed.record(followee, timestamp, -1);
+            }
+        }
+        String removed = users[id].getName();
+        int[] followers = followerIds[id];
+        int followerCount = followerIdCounts[id];
+        for (int i = 0; i < followerCount; i++) {
+            int follower = followers[i];
+            // A User can be changed directly, so its follows list may no longer have the name.
+            users[follower].removeFollowee(removed);
+            follows.remove(LongHashSet.pair(follower, id));
+            removeFolloweeId(follower, id);
+            if (minHash != null) {
+                minHash.set(follower, followeeIds[follower], followeeIdCounts[follower]);
+            }
+        }
+        // A union-find cannot split a set, so the weak components are rebuilt when they are next needed.
+        // Without follows, the user was a weak component on its own.
+        if (followeeCount + followerCount > 0) {
+            weakStale = true;
+        } else if (!weakStale) {
+            weakComponentCount--;
+        }
+        // The ranking moves the user down one follower at a time, to the users with none, in O(1) each.
+        for (int count = followerCount; count > 0; count--) {
+            ranking.decrement(id, count);
+        }
+        ranking.remove(id);
+        ids.remove(removed.toLowerCase());
+        users[id] = null;
+        followeeIds[id] = null;
+        followeeIdCounts[id] = 0;
+        followerIds[id] = null;
+        followerIdCounts[id] = 0;
+        followeeBits[id] = null;
+        if (minHash != null) {
+            minHash.set(id, followees, 0);
+        }
+        if (reach != null) {
+            reach.remove(id, followees, followeeCount, followerIds, followerIdCounts, followeeIds, followeeIdCounts);
+        }
+        for (TrendingIndex index : trending) {
+            index.remove(id);
+        }
+        if (windowed != null) {
+            windowed.remove(id);
+        }
+        freeIds[freeIdCount++] = id;
+        // Cached ranks may be stale by design, but must not rank a free slot.
+        ranks = null;
+        modCount += followeeCount + followerCount + 1;
+        return true;
+    }
+
+    /**
+     * Makes every user, present and future, remove followees in O(1) (see
+     * User.enableFastRemoval), at the cost of a hash map per user.
+     */
+    public void enableFastRemoval() {
+        fastRemoval = true;
         for (int i = 0; i < userCount; i++) {
-            User other = users[i];
+            if (users[i] != null) {
+                users[i].enableFastRemoval();
+            }
+        }
+    }
 
-            if (other == currentUser) {
-                continue;
+    /**
+     * Gives every user, present and future, a Bloom filter of its followees, so that
+     * User.follows answers most questions about names that it does not follow without a scan
+     * (see User.enableBloomFilter). getBloomFilterCounts reports how well it works.
+     */
+    public void enableBloomFilters() {
+        if (filterCounts == null) {
+            filterCounts = new FolloweeFilter.Counts();
+        }
+        for (int i = 0; i < userCount; i++) {
+            if (users[i] != null) {
+                users[i].enableBloomFilter(filterCounts);
             }
-            if (currentUser.follows(other.getName())) {
-                continue;
+        }
+    }
+
+    /**
+     * Returns the counts of the queries that the Bloom filters of the users of this network
+     * answered, which no other network shares. Requires enableBloomFilters.
+     */
+    public FolloweeFilter.Counts getBloomFilterCounts() {
+        if (filterCounts == null) {
+            throw new IllegalStateException("Bloom filters are not enabled");
+        }
+        return filterCounts;
+    }
+
+    /**
+     * Gives back the memory of follow arrays that are much larger than they need to be, after
+     * follows were removed, for up to maxUsers users from where the previous call stopped.
+     * Returns the number of arrays that were shrunk. Calling it now and then with a small
+     * maxUsers (see SharedNetwork.compactInBackground) goes over the whole network in short steps.
+     */
+    public int compact(int maxUsers) {
+        int shrunk = 0;
+        for (int i = 0; i < Math.min(maxUsers, userCount); i++) {
+            if (compactCursor >= userCount) {
+                compactCursor = 0;
+            }
+            int u = compactCursor++;
+            int[] followees = shrink(followeeIds[u], followeeIdCounts[u]);
+            if (followees != followeeIds[u]) {
+                followeeIds[u] = followees;
+                shrunk++;
+            }
+            int[] followers = shrink(followerIds[u], followerIdCounts[u]);
+            if (followers != followerIds[u]) {
+                followerIds[u] = followers;
+                shrunk++;
+            }
+        }
+        return shrunk;
+    }
+
+    /** Returns a copy of the array with room for twice its count, if it uses less than a quarter of its length, or else the array itself. */
+    private static int[] shrink(int[] ids, int count) {
+        if (ids == null || ids.length <= 8 || count >= ids.length / 4) {
+            return ids;
+        }
+        return (count == 0) ? null : Arrays.copyOf(ids, Math.max(4, 2 * count));
+    }
+
+    /**
+     * Returns true if the users with the two given names follow each other, in O(1).
+     * If any of the two names is not a user in this network, returns false.
+     */
+    public boolean areFriends(String name1, String name2) {
+        int id1 = idOf(name1);
+        int id2 = idOf(name2);
+        if (id1 < 0 || id2 < 0 || id1 == id2) {
+            return false;
+        }
+        return follows.containsKey(LongHashSet.pair(id1, id2)) && follows.containsKey(LongHashSet.pair(id2, id1));
+    }
+
+    /**
+     * Returns the names of the friends of the user with the given name: the users that this user
+     * follows, and that follow this user back. Takes O(d), where d is the number of users that
+     * this user follows. If there is no such user, returns null.
+     */
+    public String[] friendsOf(String name) {
+        int id = idOf(name);
+        if (id < 0) {
+            return null;
+        }
+        String[] followees = users[id].getfFollows();
+        int fCount = users[id].getfCount();
+        String[] friends = new String[fCount];
+        int count = 0;
+        for (int i = 0; i < fCount; i++) {
+            int other = idOf(followees[i]);
+            if (other >= 0 && follows.containsKey(LongHashSet.pair(other, id))) {
+                friends[count++] = users[other].getName();
             }
+        }
+        return Arrays.copyOf(friends, count);
+    }
+
+    /** Returns the number of pairs of users in this network that follow each other. */
+    public int getFriendPairCount() {
+        return this.friendPairCount;
+    }
+
+    /** Returns the number of follows in this network. */
+    public int getFollowCount() {
+        return follows.size();
+    }
+
+    /**
+     * Returns the reciprocity of this network: the fraction of follows that are followed back.
+     * If there are no follows, returns 0.
+     */
+    public double reciprocity() {
+        return (follows.size() == 0) ? 0 : 2.0 * friendPairCount / follows.size();
+    }
+
+    /** Returns the number of followers of the user with the given name, in O(1). If there is no such user, returns 0. */
+    public int followerCount(String name) {
+        int id = idOf(name);
+        return (id < 0) ? 0 : followerIdCounts[id];
+    }
+
+    /**
+     * Returns the names of the k users with the most followers, from the most, in O(k). The
+     * ranking is kept up to date as follows change (see the FollowerRanking class), and users
+     * with the same number of followers are in no particular order.
+     */
+    public String[] mostFollowed(int k) {
+        int[] top = ranking.top(k);
+        return names(top, top.length);
+    }
 
-            int intersectionCount = 0;
+    /**
+     * A user whose sorted followee ids reach this size also gets a followee bitmap. At this size,
+     * the bitmap takes at most twice the memory of the array.
+     */
+    private int denseThreshold() {
+        return Math.max(64, users.length / 64);
+    }
 
-            String[] otherFollows = other.getfFollows();
-            int otherFCount = other.getfCount();
+    /** Adds the followee to the sorted followee ids, and to the bitmap, of the follower. */
+    private void addFolloweeId(int follower, int followee) {
+        int count = followeeIdCounts[follower];
+        int[] ids = (followeeIds[follower] == null) ? new int[4] : followeeIds[follower];
+        followeeIds[follower] = FollowSets.insert(ids, count, followee);
+        followeeIdCounts[follower] = ++count;
+        addFollowerId(followee, follower);
+        long[] bits = followeeBits[follower];
+        if (bits != null) {
+            bits[followee >>> 6] |= 1L << followee;
+        } else if (count >= denseThreshold()) {
+            followeeBits[follower] = followeeBits(follower);
+        }
+    }
 
-            for (int j = 0; j < currentFCount; j++) {
-                String currFolloweeName = currentFollows[j];
-                if (currFolloweeName == null) {
-                    continue; 
+    /**
+     * Adds the first count of the given sorted followees, which the follower did not follow, to
+     * its sorted followee ids, growing them at most once, and to its bitmap. Unlike
+     * addFolloweeId, it leaves the follower ids of the followees to the caller.
+     */
+    private void addFolloweeIds(int follower, int[] followees, int count) {
+        int[] ids = (followeeIds[follower] == null) ? new int[4] : followeeIds[follower];
+        followeeIds[follower] = FollowSets.insertAll(ids, followeeIdCounts[follower], followees, count);
+        followeeIdCounts[follower] += count;
+        long[] bits = followeeBits[follower];
+        if (bits != null) {
+            for (int i = 0; i < count; i++) {
+                bits[followees[i] >>> 6] |= 1L << followees[i];
+            }
+        } else if (followeeIdCounts[follower] >= denseThreshold()) {
+            followeeBits[follower] = followeeBits(follower);
+        }
+    }
+
+    /** Returns a new bitmap of the followees of the follower. */
+    private long[] followeeBits(int follower) {
+        long[] bits = new long[(users.length + 63) >>> 6];
+        for (int i = 0; i < followeeIdCounts[follower]; i++) {
+            bits[followeeIds[follower][i] >>> 6] |= 1L << followeeIds[follower][i];
+        }
+        return bits;
+    }
+
+    /**
+     * Removes the followee from the sorted followee ids, and from the bitmap, of the follower.
+     * Unlike addFolloweeId, it leaves the follower ids of the followee to the caller.
+     */
+    private void removeFolloweeId(int follower, int followee) {
+        if (!FollowSets.remove(followeeIds[follower], followeeIdCounts[follower], followee)) {
+            return;
+        }
+        int count = --followeeIdCounts[follower];
+        long[] bits = followeeBits[follower];
+        if (bits != null) {
+            bits[followee >>> 6] &= ~(1L << followee);
+            // Drops the bitmap only well below the threshold, so that a user near it does not flip back and forth.
+            if (count < denseThreshold() / 2) {
+                followeeBits[follower] = null;
+            }
+        }
+    }
+
+    /** Appends the follower to the follower ids of the followee, and adds the follow, with its position, to the follows. */
+    private void addFollowerId(int followee, int follower) {
+        int count = followerIdCounts[followee];
+        int[] ids = followerIds[followee];
+        if (ids == null || count == ids.length) {
+            ids = Arrays.copyOf((ids == null) ? new int[0] : ids, Math.max(4, 2 * count));
+            followerIds[followee] = ids;
+        }
+        ids[count] = follower;
+        follows.put(LongHashSet.pair(follower, followee), count);
+        followerIdCounts[followee] = count + 1;
+        ranking.increment(followee, count);
+    }
+
+    /**
+     * Removes the follower at the given position (which the follows give) from the follower ids
+     * of the followee, in O(1), by moving the last follower into its place.
+     */
+    private void removeFollowerId(int followee, int position) {
+        int[] ids = followerIds[followee];
+        int last = followerIdCounts[followee] - 1;
+        if (position != last) {
+            ids[position] = ids[last];
+            follows.put(LongHashSet.pair(ids[position], followee), position);
+        }
+        followerIdCounts[followee] = last;
+        ranking.decrement(followee, last + 1);
+    }
+
+    /** Intersects the followees of the two users, with the algorithm that suits their sizes. */
+    private int intersectFollowees(int id1, int id2, int[] out, int limit) {
+        long[] bits1 = followeeBits[id1];
+        long[] bits2 = followeeBits[id2];
+        if (bits1 != null && bits2 != null) {
+            return FollowSets.intersect(bits1, bits2, out, limit);
+        }
+        if (bits2 != null) {
+            return FollowSets.intersect(followeeIds[id1], followeeIdCounts[id1], bits2, out, limit);
+        }
+        if (bits1 != null) {
+            return FollowSets.intersect(followeeIds[id2], followeeIdCounts[id2], bits1, out, limit);
+        }
+        return FollowSets.intersect(followeeIds[id1], followeeIdCounts[id1], followeeIds[id2], followeeIdCounts[id2], out, limit);
+    }
+
+    /** Returns the names of the users with the given ids. */
+    private String[] names(int[] ids, int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = users[ids[i]].getName();
+        }
+        return names;
+    }
+
+    /** Returns the ids of the users with the given names, or null if any of them is not a user in this network. */
+    private int[] idsOf(String[] names) {
+        if (names == null) {
+            return null;
+        }
+        int[] result = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = idOf(names[i]);
+            if (result[i] < 0) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the names of the users that both given users follow (their mutual followees),
+     * in the order of the users in this network, but at most limit of them. It intersects the
+     * sorted followee ids of the two users (see FollowSets), instead of looking up the names of
+     * one follows list in the other, which a User on its own would have to do.
+     * If any of the two names is not a user in this network, returns null.
+     */
+    public String[] mutualFollowees(String name1, String name2, int limit) {
+        int id1 = idOf(name1);
+        int id2 = idOf(name2);
+        if (id1 < 0 || id2 < 0) {
+            return null;
+        }
+        int[] out = new int[Math.max(0, Math.min(limit, Math.min(followeeIdCounts[id1], followeeIdCounts[id2])))];
+        return names(out, intersectFollowees(id1, id2, out, out.length));
+    }
+
+    /**
+     * Returns the number of users that both given users follow, without listing them.
+     * If any of the two names is not a user in this network, returns 0.
+     */
+    public int countMutualFollowees(String name1, String name2) {
+        int id1 = idOf(name1);
+        int id2 = idOf(name2);
+        if (id1 < 0 || id2 < 0) {
+            return 0;
+        }
+        return intersectFollowees(id1, id2, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the names of the users that all the given users follow, in the order of the users
+     * in this network, but at most limit of them. If any of the names is not a user in this
+     * network, returns null.
+     */
+    public String[] commonFollowees(String[] names, int limit) {
+        int[] ids = idsOf(names);
+        if (ids == null) {
+            return null;
+        }
+        if (ids.length == 2) {
+            return mutualFollowees(names[0], names[1], limit);
+        }
+        int[][] sets = new int[ids.length][];
+        int[] lengths = new int[ids.length];
+        int smallest = Integer.MAX_VALUE;
+        for (int i = 0; i < ids.length; i++) {
+            sets[i] = (followeeIds[ids[i]] == null) ? new int[0] : followeeIds[ids[i]];
+            lengths[i] = followeeIdCounts[ids[i]];
+            smallest = Math.min(smallest, lengths[i]);
+        }
+        int[] out = new int[Math.max(0, Math.min(limit, (ids.length == 0) ? 0 : smallest))];
+        return names(out, FollowSets.intersectAll(sets, lengths, ids.length, out, out.length));
+    }
+
+    /**
+     * Returns the names of the users that at least one of the given users follows, in the order
+     * of the users in this network. If any of the names is not a user in this network, returns null.
+     */
+    public String[] allFollowees(String[] names) {
+        int[] ids = idsOf(names);
+        if (ids == null) {
+            return null;
+        }
+        int[] current = new int[0];
+        int count = 0;
+        for (int id : ids) {
+            int[] set = (followeeIds[id] == null) ? new int[0] : followeeIds[id];
+            int[] merged = new int[count + followeeIdCounts[id]];
+            count = FollowSets.union(current, count, set, followeeIdCounts[id], merged);
+            current = merged;
+        }
+        return names(current, count);
+    }
+
+    /**
+     * Returns the names of the users that the first user follows and the second user does not,
+     * in the order of the users in this network, but at most limit of them.
+     * If any of the two names is not a user in this network, returns null.
+     */
+    public String[] followeesOnlyOf(String name1, String name2, int limit) {
+        int id1 = idOf(name1);
+        int id2 = idOf(name2);
+        if (id1 < 0 || id2 < 0) {
+            return null;
+        }
+        int count1 = followeeIdCounts[id1];
+        int[] out = new int[Math.max(0, Math.min(limit, count1))];
+        if (count1 == 0 || out.length == 0) {
+            return new String[0];
+        }
+        int[] other = (followeeIds[id2] == null) ? new int[0] : followeeIds[id2];
+        return names(out, FollowSets.difference(followeeIds[id1], count1, other, followeeIdCounts[id2], out, out.length));
+    }
+
+    /**
+     * Returns the names of the users who follow the user with the given name, in the order
+     * of the users in this network. If there is no such user, returns null.
+     */
+    public String[] getFollowers(String name) {
+        int id = idOf(name);
+        if (id < 0) {
+            return null;
+        }
+        int count = followerIdCounts[id];
+        int[] ids = (count == 0) ? new int[0] : Arrays.copyOf(followerIds[id], count);
+        Arrays.sort(ids);
+        return names(ids, count);
+    }
+
+    /**
+     * Returns a shortest follow path from the first user to the second one, as the names of the
+     * users on the path, starting with the first user and ending with the second one. The path
+     * has at most maxDepth follows. If there is no such path, or if any of the two names is not
+     * a user in this network, returns null.
+     * The search runs from both ends and meets in the middle (see the PathSearch class).
+     */
+    public String[] shortestPath(String from, String to, int maxDepth) {
+        int s = idOf(from);
+        int t = idOf(to);
+        if (s < 0 || t < 0) {
+            return null;
+        }
+        PathSearch search = pathSearches.borrow();
+        try {
+            int length = search.shortestPath(followeeIds, followeeIdCounts, followerIds, followerIdCounts, s, t, maxDepth);
+            if (length < 0) {
+                return null;
+            }
+            int[] ids = new int[length + 1];
+            search.path(ids);
+            return names(ids, ids.length);
+        } finally {
+            pathSearches.release(search);
+        }
+    }
+
+    /**
+     * Returns the length of a shortest follow path from the first user to the second one, or -1
+     * if there is no path of at most maxDepth follows, or if any of the two names is not a user
+     * in this network. Unlike shortestPath, it allocates nothing.
+     */
+    public int distance(String from, String to, int maxDepth) {
+        int s = idOf(from);
+        int t = idOf(to);
+        if (s < 0 || t < 0) {
+            return -1;
+        }
+        PathSearch search = pathSearches.borrow();
+        try {
+            return search.shortestPath(followeeIds, followeeIdCounts, followerIds, followerIdCounts, s, t, maxDepth);
+        } finally {
+            pathSearches.release(search);
+        }
+    }
+
+    /**
+     * Returns the follow distances from the given user to each of the given target users, with
+     * one search from the given user. The i-th distance is -1 if targets[i] is not a user in this
+     * network, or cannot be reached within maxDepth follows. If the first name is not a user in
+     * this network, returns null.
+     */
+    public int[] distances(String from, String[] targets, int maxDepth) {
+        int s = idOf(from);
+        if (s < 0) {
+            return null;
+        }
+        int[] targetIds = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            targetIds[i] = idOf(targets[i]);
+        }
+        int[] result = new int[targets.length];
+        PathSearch search = pathSearches.borrow();
+        try {
+            search.distances(followeeIds, followeeIdCounts, s, targetIds, result, maxDepth);
+        } finally {
+            pathSearches.release(search);
+        }
+        return result;
+    }
+
+    /**
+     * For the user with the given name, recommends another user to follow. 
+     * The recommended user is the one that has the maximal number of mutual followees
+     * with this user. If there's a tie, you can return the first or any one of them.
+     * If the user doesn't exist or there's no possible recommendation, returns null.
+     * The score of a candidate can be changed with setScoring.
+     */
+    public String recommendWhoToFollow(String name) {
+        return recommendWhoToFollow(name, scoring);
+    }
+
+    /**
+     * For the user with the given name, recommends another user to follow: the one with the
+     * highest score, by the given scoring strategy, and the first of them if there's a tie.
+     * If no user shares a followee with this user, recommends the first user that this user
+     * does not follow. If the user doesn't exist or there's no possible recommendation, returns null.
+     *
+     * Only users who share a followee with this user can score above 0, so instead of scanning
+     * every user, it walks from each followee of this user to the followers of that followee,
+     * and adds the weight of the followee to the score of each of them, in one pass.
+     */
+    public String recommendWhoToFollow(String name, Scoring scoring) {
+        GraphEvents.Recommend event = new GraphEvents.Recommend();
+        event.begin();
+        int id = idOf(name);
+        if (id < 0) {
+            commit(event, name, 0, 0, null);
+            return null; // user not found
+        }
+        CandidateScores scores = candidateScores.borrow();
+        try {
+            scores.clear();
+            long walked = 0;
+            for (int i = 0; i < followeeIdCounts[id]; i++) {
+                int followee = followeeIds[id][i];
+                int followers = followerIdCounts[followee];
+                double weight = scoring.weight(followers);
+                for (int j = 0; j < followers; j++) {
+                    scores.add(followerIds[followee][j], weight);
                 }
-                for (int k = 0; k < otherFCount; k++) {
-                    if (otherFollows[k] == null) {
-                        continue;
-                    }
-                    if (otherFollows[k].equalsIgnoreCase(currFolloweeName)) {
-                        intersectionCount++;
-                        break; 
-                    }
+                walked += followers;
+            }
+            int best = -1;
+            double bestScore = 0;
+            for (int i = 0; i < scores.size(); i++) {
+                int candidate = scores.candidate(i);
+                if (candidate == id || follows.containsKey(LongHashSet.pair(id, candidate))) {
+                    continue;
+                }
+                double score = scoring.score(scores.sum(candidate), followeeIdCounts[id], followeeIdCounts[candidate]);
+                if (best < 0 || score > bestScore || (score == bestScore && candidate < best)) {
+                    best = candidate;
+                    bestScore = score;
+                }
+            }
+            for (int i = 0; i < userCount && best < 0; i++) {
+                if (i != id && users[i] != null && !follows.containsKey(LongHashSet.pair(id, i))) {
+                    best = i;
                 }
             }
+            String result = (best < 0) ? null : users[best].getName();
+            commit(event, name, scores.size(), walked, result);
+            return result;
+        } finally {
+            candidateScores.release(scores);
+        }
+    }
+
+    /** Sets the scoring strategy that recommendWhoToFollow uses when none is given. By default, it is Scoring.RAW. */
+    public void setScoring(Scoring scoring) {
+        this.scoring = scoring;
+    }
 
-            if (intersectionCount > bestIntersectionCount) {
-                bestIntersectionCount = intersectionCount;
-                bestCandidate = other;
+    /**
+     * Starts keeping MinHash signatures of the follow sets of the users, for
+     * approximateRecommendations, with the given number of bands and rows per band (see the
+     * MinHashIndex class). The signatures are built from the current follows, and are then
+     * kept up to date as follows change.
+     */
+    public void enableMinHash(int bands, int rows, long seed) {
+        MinHashIndex index = new MinHashIndex(users.length, bands, rows, seed);
+        for (int i = 0; i < userCount; i++) {
+            if (followeeIdCounts[i] > 0) {
+                index.set(i, followeeIds[i], followeeIdCounts[i]);
             }
         }
+        this.minHash = index;
+    }
+
+    /**
+     * Recommends up to k users for the user with the given name to follow: users that it does
+     * not follow yet, whose follow sets are the most similar to its own, by the MinHash
+     * estimate of their Jaccard similarity. It only looks at users whose signatures share an
+     * LSH bucket with the user's own, so it is fast, but may miss good candidates.
+     * If there is no such user, returns null. Requires enableMinHash.
+     */
+    public String[] approximateRecommendations(String name, int k) {
+        if (minHash == null) {
+            throw new IllegalStateException("MinHash signatures are not enabled");
+        }
+        int id = idOf(name);
+        if (id < 0) {
+            return null;
+        }
+        int[] top = minHash.top(id, k, candidate -> !follows.containsKey(LongHashSet.pair(id, candidate)));
+        return names(top, top.length);
+    }
 
-        return (bestCandidate == null) ? null : bestCandidate.getName();
+    /** Ends the given recommendation event, and commits it if it passed its threshold. */
+    private static void commit(GraphEvents.Recommend event, String target, int scanned, long intersections, String result) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.targetUser = target;
+            event.candidatesScanned = scanned;
+            event.intersectionsComputed = intersections;
+            event.resultSize = (result == null) ? 0 : 1;
+            event.commit();
+        }
     }
 
     /**
@@ -152,14 +1065,19 @@ public class Network {
      * If there are no users, returns null.
      */
     public String mostPopularUser() {
-        if (userCount == 0) {
+        if (getUserCount() == 0) {
             return null;
         }
+        GraphEvents.MostPopular event = new GraphEvents.MostPopular();
+        event.begin();
 
         String mostPopular = null;
         int maxCount = -1;
 
         for (int i = 0; i < userCount; i++) {
+            if (users[i] == null) {
+                continue;
+            }
             String candidateName = users[i].getName();
             int count = followeeCount(candidateName);
             if (count > maxCount) {
@@ -167,6 +1085,14 @@ public class Network {
                 mostPopular = candidateName;
             }
         }
+        event.end();
+        if (event.shouldCommit()) {
+            event.targetUser = mostPopular;
+            event.candidatesScanned = userCount;
+            event.intersectionsComputed = (long) userCount * userCount;
+            event.resultSize = (mostPopular == null) ? 0 : 1;
+            event.commit();
+        }
         return mostPopular;
     }
 
@@ -179,6 +1105,9 @@ public class Network {
     private int followeeCount(String name) {
         int count = 0;
         for (int i = 0; i < userCount; i++) {
+            if (users[i] == null) {
+                continue;
+            }
             String[] arr = users[i].getfFollows();
             int fCount = users[i].getfCount();
 
@@ -192,22 +1121,409 @@ public class Network {
         return count;
     }
 
+    /**
+     * Sets how PageRank is computed, and how many changes to the users and follows of this
+     * network are allowed before the cached ranks are computed again. With 0, the ranks are
+     * computed again after any change.
+     */
+    public synchronized void setPageRank(PageRank pageRank, int maxStaleChanges) {
+        this.pageRank = pageRank;
+        this.maxStaleChanges = Math.max(0, maxStaleChanges);
+        this.ranks = null;
+    }
+
+    /**
+     * Returns the PageRank of every user, by id. The ranks are cached, and computed again only
+     * when this network changed more than maxStaleChanges times since they were computed (see
+     * setPageRank). It is synchronized, so that readers who share this network under a read lock
+     * compute the ranks once, and not once each.
+     */
+    private synchronized double[] ranks() {
+        if (ranks == null || ranks.length != userCount || modCount - ranksModCount > maxStaleChanges) {
+            ranks = pageRank.compute(followerIds, followerIdCounts, followeeIdCounts, userCount);
+            if (freeIdCount > 0) {
+                // A free slot acts as a user with no follows, which scales the ranks of all the
+                // other users by the same factor, so they are scaled back to a sum of 1.
+                double sum = 1;
+                for (int i = 0; i < freeIdCount; i++) {
+                    sum -= ranks[freeIds[i]];
+                    ranks[freeIds[i]] = 0;
+                }
+                for (int i = 0; i < userCount; i++) {
+                    ranks[i] /= sum;
+                }
+            }
+            ranksModCount = modCount;
+        }
+        return ranks;
+    }
+
+    /**
+     * Returns the name of the most influential user in this network: the user with the highest
+     * PageRank (see the PageRank class). Unlike mostPopularUser, which counts followers, it gives
+     * little weight to followers that nobody follows. If there are no users, returns null.
+     */
+    public String mostInfluentialUser() {
+        String[] top = mostInfluentialUsers(1);
+        return (top.length == 0) ? null : top[0];
+    }
+
+    /**
+     * Returns the names of the k users with the highest PageRank, from the highest to the lowest.
+     * Users with equal ranks are in the order of the users in this network.
+     */
+    public String[] mostInfluentialUsers(int k) {
+        if (getUserCount() == 0) {
+            return new String[0];
+        }
+        int[] top = PageRank.top(ranks(), userCount, Math.min(k, getUserCount()));
+        return names(top, top.length);
+    }
+
+    /** Returns the PageRank of the user with the given name, or 0 if there is no such user. */
+    public double rankOf(String name) {
+        int id = idOf(name);
+        return (id < 0) ? 0 : ranks()[id];
+    }
+
+    /**
+     * Returns the weak components, after rebuilding them if a follow was removed since they were
+     * last built. The rebuild adds all the follows to a new union-find structure, on a pool of
+     * threads, each on its own slice of followers. If the calling thread is interrupted, stops,
+     * and throws a CancellationException with the interrupt flag set.
+     */
+    private synchronized UnionFind weakSets() {
+        if (!weakStale) {
+            return weakSets;
+        }
+        UnionFind sets = new UnionFind(users.length);
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), follows.size() / 65536));
+        int merged = 0;
+        if (threads == 1) {
+            merged = unionFollows(sets, 0, userCount);
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                Future<?>[] futures = new Future<?>[threads];
+                for (int t = 0; t < threads; t++) {
+                    int from = (int) ((long) userCount * t / threads);
+                    int to = (int) ((long) userCount * (t + 1) / threads);
+                    futures[t] = pool.submit(() -> unionFollows(sets, from, to));
+                }
+                for (Future<?> future : futures) {
+                    merged += (Integer) future.get();
+                }
+            } catch (InterruptedException e) {
+                // The stale sets may join users who are no longer connected, so there is no result.
+                Thread.currentThread().interrupt();
+                CancellationException cancelled = new CancellationException("interrupted while rebuilding the weak components");
+                cancelled.initCause(e);
+                throw cancelled;
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        weakSets = sets;
+        weakComponentCount = getUserCount() - merged;
+        weakStale = false;
+        return sets;
+    }
+
+    /** Merges the sets of the users from (inclusive) to to (exclusive) with those of their followees. Returns the number of merges. */
+    private int unionFollows(UnionFind sets, int from, int to) {
+        int merged = 0;
+        for (int u = from; u < to; u++) {
+            for (int i = 0; i < followeeIdCounts[u]; i++) {
+                if (sets.union(u, followeeIds[u][i])) {
+                    merged++;
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the number of weakly connected components of this network: groups of users that
+     * are linked by chains of follows in any direction, such as an isolated ring of accounts
+     * that only follow each other. A user who follows nobody and has no followers is a
+     * component on its own.
+     */
+    public synchronized int weakComponentCount() {
+        weakSets();
+        return this.weakComponentCount;
+    }
+
+    /**
+     * Returns true if the users with the two given names are in the same weakly connected
+     * component. If any of the two names is not a user in this network, returns false.
+     */
+    public boolean inSameWeakComponent(String name1, String name2) {
+        int id1 = idOf(name1);
+        int id2 = idOf(name2);
+        if (id1 < 0 || id2 < 0) {
+            return false;
+        }
+        return weakSets().connected(id1, id2);
+    }
+
+    /**
+     * Returns the weakly connected component of every user, in the order of the users in this
+     * network, and -1 for free slots. The components are numbered as described in the Components class.
+     */
+    public int[] weakComponents() {
+        int[] component = new int[userCount];
+        int count = Components.weak(weakSets(), userCount, component);
+        Components.exclude(component, userCount, count, freeIds, freeIdCount);
+        return component;
+    }
+
+    /**
+     * Returns the strongly connected component of every user, in the order of the users in this
+     * network: users are in the same component if each of them can reach the other by following
+     * follows, and -1 for free slots. The components are numbered as described in the Components
+     * class, and are cached until this network changes.
+     */
+    public synchronized int[] strongComponents() {
+        if (strongComponents == null || strongModCount != modCount) {
+            strongComponents = new int[userCount];
+            int count = Components.strong(followeeIds, followeeIdCounts, userCount, strongComponents);
+            strongComponentCount = Components.exclude(strongComponents, userCount, count, freeIds, freeIdCount);
+            strongModCount = modCount;
+        }
+        return strongComponents.clone();
+    }
+
+    /** Returns, for each size of a weakly connected component, the number of components of that size. */
+    public TreeMap<Integer, Integer> weakComponentSizes() {
+        int[] component = new int[userCount];
+        int count = Components.weak(weakSets(), userCount, component);
+        count = Components.exclude(component, userCount, count, freeIds, freeIdCount);
+        return Components.sizeHistogram(component, userCount, count);
+    }
+
+    /** Returns, for each size of a strongly connected component, the number of components of that size. */
+    public synchronized TreeMap<Integer, Integer> strongComponentSizes() {
+        int[] component = strongComponents();
+        return Components.sizeHistogram(component, userCount, strongComponentCount);
+    }
+
+    /**
+     * Returns the number of triangles that each user is in, cached until this network changes.
+     * A triangle is three users in which every two are linked by a follow in at least one
+     * direction (see the Triangles class).
+     */
+    private synchronized long[] triangles() {
+        if (triangles == null || trianglesModCount != modCount) {
+            triangles = new Triangles().perUser(followeeIds, followeeIdCounts, followerIds, followerIdCounts, userCount);
+            trianglesModCount = modCount;
+        }
+        return triangles;
+    }
+
+    /** Returns the number of triangles in this network. */
+    public long triangleCount() {
+        long sum = 0;
+        for (long count : triangles()) {
+            sum += count;
+        }
+        return sum / 3;
+    }
+
+    /**
+     * Returns the local clustering coefficient of every user, in the order of the users in this
+     * network: the fraction of the pairs of its neighbors (the users that it follows, or that
+     * follow it) that are linked by a follow.
+     */
+    public double[] clusteringCoefficients() {
+        long[] counts = triangles();
+        return Triangles.clustering(counts, Triangles.degrees(followeeIds, followeeIdCounts, followerIds, followerIdCounts, userCount));
+    }
+
+    /**
+     * Returns the local clustering coefficient of the user with the given name, without counting
+     * the triangles of the whole network. If there is no such user, returns 0.
+     */
+    public double clusteringCoefficient(String name) {
+        int id = idOf(name);
+        if (id < 0) {
+            return 0;
+        }
+        int[] neighbors = new int[followeeIdCounts[id] + followerIdCounts[id]];
+        int count = 0;
+        for (int i = 0; i < followeeIdCounts[id]; i++) {
+            neighbors[count++] = followeeIds[id][i];
+        }
+        for (int i = 0; i < followerIdCounts[id]; i++) {
+            int follower = followerIds[id][i];
+            if (!follows.containsKey(LongHashSet.pair(id, follower))) {
+                neighbors[count++] = follower;
+            }
+        }
+        long linked = 0;
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                if (follows.containsKey(LongHashSet.pair(neighbors[i], neighbors[j])) || follows.containsKey(LongHashSet.pair(neighbors[j], neighbors[i]))) {
+                    linked++;
+                }
+            }
+        }
+        long pairs = (long) count * (count - 1) / 2;
+        return (pairs == 0) ? 0 : (double) linked / pairs;
+    }
+
+    /**
+     * Estimates the number of triangles in this network from the given number of sampled wedges,
+     * for networks that are too large to count them exactly (see the Triangles class).
+     */
+    public Triangles.Estimate estimateTriangles(int samples, double confidence, long seed) {
+        return Triangles.estimate(followeeIds, followeeIdCounts, followerIds, followerIdCounts, userCount, samples, confidence, seed);
+    }
+
+    /**
+     * Returns a compressed copy of the followees of every user, by id (see the
+     * CompressedAdjacency class), which does not change as this network changes.
+     */
+    public CompressedAdjacency compressFollowees() {
+        return compress("compressed followees", followeeIds, followeeIdCounts);
+    }
+
+    /** Returns a compressed copy of the followers of every user, by id, as compressFollowees does. */
+    public CompressedAdjacency compressFollowers() {
+        return compress("compressed followers", followerIds, followerIdCounts);
+    }
+
+    private CompressedAdjacency compress(String destination, int[][] lists, int[] counts) {
+        GraphEvents.SnapshotSave event = new GraphEvents.SnapshotSave();
+        event.begin();
+        CompressedAdjacency adjacency = CompressedAdjacency.of(lists, counts, userCount);
+        event.end();
+        if (event.shouldCommit()) {
+            event.destination = destination;
+            event.userCount = adjacency.getUserCount();
+            event.followCount = adjacency.getEdgeCount();
+            event.byteCount = adjacency.getByteCount();
+            event.commit();
+        }
+        return adjacency;
+    }
+
+    /**
+     * Starts keeping HyperLogLog sketches of the followers of every user, and of the users within
+     * two hops, with the given precision (see the ReachSketches class). The sketches are built in
+     * parallel from the current follows, and are then kept up to date as follows change. If the
+     * calling thread is interrupted, throws a CancellationException and keeps the sketches it had.
+     */
+    public synchronized void enableReachSketches(int precision) {
+        ReachSketches sketches = new ReachSketches(users.length, precision);
+        sketches.build(followerIds, followerIdCounts, userCount, Runtime.getRuntime().availableProcessors());
+        this.reach = sketches;
+    }
+
+    /**
+     * Returns the estimated number of distinct users within the given number of hops of the user
+     * with the given name: its followers for 1 hop, also the followers of its followers for 2
+     * hops, and so on. If there is no such user, returns 0. Requires enableReachSketches.
+     */
+    public synchronized double estimateReach(String name, int hops) {
+        if (reach == null) {
+            throw new IllegalStateException("reach sketches are not enabled");
+        }
+        int id = idOf(name);
+        return (id < 0) ? 0 : reach.reach(followerIds, followerIdCounts, id, hops);
+    }
+
+    /**
+     * Starts ranking the users by their recent follower gains, with each of the given half-lives,
+     * in milliseconds (see the TrendingIndex class). Only follows from now on are counted.
+     */
+    public void enableTrending(long... halfLives) {
+        TrendingIndex[] indexes = new TrendingIndex[halfLives.length];
+        for (int i = 0; i < halfLives.length; i++) {
+            indexes[i] = new TrendingIndex(users.length, halfLives[i]);
+        }
+        this.trending = indexes;
+    }
+
+    /** Returns the trending index with the given half-life. Throws IllegalArgumentException if there is none. */
+    private TrendingIndex trendingIndex(long halfLife) {
+        for (TrendingIndex index : trending) {
+            if (index.getHalfLife() == halfLife) {
+                return index;
+            }
+        }
+        throw new IllegalArgumentException("trending is not enabled for half-life " + halfLife + " ms");
+    }
+
+    /**
+     * Returns the names of the k users who are gaining followers the fastest, from the fastest:
+     * every follow counts less the longer ago it happened, and half as much after every halfLife
+     * milliseconds. The half-life must be one of those given to enableTrending.
+     * Takes O(k + log n), no matter how many users there are.
+     */
+    public String[] trendingUsers(int k, long halfLife) {
+        int[] top = trendingIndex(halfLife).top(k);
+        return names(top, top.length);
+    }
+
+    /**
+     * Returns the decayed follower gain of the user with the given name at the given time, with
+     * the given half-life, as in trendingUsers. If there is no such user, returns 0.
+     */
+    public double trendingScore(String name, long halfLife, long now) {
+        int id = idOf(name);
+        return (id < 0) ? 0 : trendingIndex(halfLife).score(id, now);
+    }
+
+    /**
+     * Starts counting the new followers of every user in sliding time windows (see the
+     * WindowedCounts class), for example WindowedCounts.hourDayWeek(). Only follows from now on
+     * are counted.
+     */
+    public void enableWindowedCounts(WindowedCounts counts) {
+        this.windowed = counts;
+    }
+
+    /**
+     * Returns the net number of new followers (follows minus unfollows) of the user with the
+     * given name, in the window of the given length, in milliseconds, that ends at the given
+     * time. If there is no such user, returns 0. Requires enableWindowedCounts.
+     */
+    public int newFollowers(String name, long window, long now) {
+        if (windowed == null) {
+            throw new IllegalStateException("windowed counts are not enabled");
+        }
+        int id = idOf(name);
+        return (id < 0) ? 0 : windowed.count(id, window, now);
+    }
+
+    /**
+     * Returns the names of the k users with the most new followers in the window of the given
+     * length, in milliseconds, that ends at the given time, from the most. Requires enableWindowedCounts.
+     */
+    public String[] topNewFollowers(int k, long window, long now) {
+        if (windowed == null) {
+            throw new IllegalStateException("windowed counts are not enabled");
+        }
+        int[] top = windowed.top(k, window, now);
+        return names(top, top.length);
+    }
+
     /**
      * Returns a textual description of all the users in this network, 
      * and who they follow.
      */
     public String toString() {
-        if (userCount == 0) {
+        if (getUserCount() == 0) {
             return "Network:";
         }
     
-        String result = "Network:\n";
+        String result = "Network:";
         
         for (int i = 0; i < userCount; i++) {
-            if (i < userCount - 1) {
-                result += users[i].toString() + "\n";
-            } else {
-                result += users[i].toString();
+            if (users[i] != null) {
+                result += "\n" + users[i].toString();
             }
         }
     
@@ -0,0 +1,179 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded HTTP server for a network, built on the JDK's com.sun.net.httpserver.
+ * Every request is handled on its own virtual thread, so a request that waits for a lock
+ * does not hold a platform thread, and the number of open connections is limited only by
+ * memory and file descriptors. Connections are kept alive between requests.
+ *
+ * Each operation of the Request class has its own endpoint, named after the operation, with
+ * the users in the "name" and "followee" query parameters. Operations that change the network
+ * must use POST. Every response is one JSON result line, as in Request.resultLine. For example:
+ *
+ *   GET  /getUser?name=Alice
+ *   GET  /getFollowers?name=Alice
+ *   GET  /recommendWhoToFollow?name=Alice
+ *   GET  /mostPopularUser
+ *   POST /addUser?name=Alice
+ *   POST /addFollowee?name=Alice&followee=Bob
+ *
+ * POST /batch takes a JSON-lines body of requests, runs them in order, and returns one
+ * JSON result line for each of them, so that a client can send many requests in one round trip.
+ * A request that lacks a parameter that its operation needs gets status 400 (or, in a batch, an
+ * error line), and one that fails gets status 500 (or an error line, as in Request.errorLine).
+ *
+ * Usage: java NetworkServer [port=8080] [capacity=100000]
+ */
+public class NetworkServer {
+
+    static {
+        // Without TCP_NODELAY, a small response waits for the client's delayed ACK, which adds about 40 ms.
+        setDefault("sun.net.httpserver.nodelay", "true");
+        // By default the JDK server closes idle keep-alive connections beyond the first 200.
+        setDefault("sun.net.httpserver.maxIdleConnections", "50000");
+    }
+
+    private final SharedNetwork network;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** Creates a server for the given network on the given port (0 picks a free port). The server is not started. */
+    public NetworkServer(SharedNetwork network, int port) throws IOException {
+        this.network = network;
+        this.server = HttpServer.create(new InetSocketAddress(port), 4096);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Stops the server, waiting at most the given number of seconds for the open exchanges to finish. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /** Returns the port that the server listens on. */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/batch")) {
+                if (!method.equals("POST")) {
+                    send(exchange, 405, "{\"error\":\"use POST\"}\n");
+                    return;
+                }
+                send(exchange, 200, batch(exchange.getRequestBody()));
+                return;
+            }
+            Request.Op op = Request.Op.fromJsonName(path.substring(1));
+            if (op == null) {
+                send(exchange, 404, "{\"error\":\"unknown operation\"}\n");
+                return;
+            }
+            if (!op.isReadOnly() && !method.equals("POST")) {
+                send(exchange, 405, "{\"error\":\"use POST\"}\n");
+                return;
+            }
+            // Drains the body, if any, so the connection can be kept alive.
+            exchange.getRequestBody().readAllBytes();
+            String query = exchange.getRequestURI().getRawQuery();
+            Request request;
+            try {
+                request = Request.of(op, null, parameter(query, "name"), parameter(query, "followee"));
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, Json.quote(new StringBuilder("{\"error\":"), e.getMessage()) + "}\n");
+                return;
+            }
+            String line;
+            try {
+                line = request.resultLine(network.apply(request));
+            } catch (RuntimeException e) {
+                send(exchange, 500, request.errorLine(e) + "\n");
+                return;
+            }
+            send(exchange, 200, line + "\n");
+        }
+    }
+
+    /** Runs the JSON-lines requests of the given body, in order, and returns their JSON-lines results. */
+    private String batch(InputStream body) throws IOException {
+        String[] lines = new String(body.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].isBlank()) {
+                continue;
+            }
+            Request request;
+            try {
+                request = Request.parse(lines[i]);
+            } catch (IllegalArgumentException e) {
+                sb.append("{\"line\":").append(i + 1).append(",\"error\":");
+                Json.quote(sb, e.getMessage()).append("}\n");
+                continue;
+            }
+            // A request that fails gets an error line, and the later requests of the batch still run.
+            try {
+                sb.append(request.resultLine(network.apply(request))).append('\n');
+            } catch (RuntimeException e) {
+                sb.append(request.errorLine(e)).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Returns the decoded value of the given parameter in the given raw query, or null if it is missing. */
+    private static String parameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /** Sets the given system property, unless it was set on the command line. */
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 8080;
+        int capacity = (args.length > 1) ? Integer.parseInt(args[1]) : 100000;
+        NetworkServer server = new NetworkServer(new SharedNetwork(new Network(capacity)), port);
+        server.start();
+        System.out.println("Listening on http://localhost:" + server.getPort() + "/");
+    }
+}
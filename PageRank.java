@@ -0,0 +1,262 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computes PageRank over a follow graph: a user is influential if it is followed by influential
+ * users, so a crowd of accounts that nobody follows adds little to the users they follow.
+ * The rank of user v is (1 - d) / n + d * (the sum, over the followers u of v, of rank(u) divided
+ * by the number of followees of u), where d is the damping factor and n the number of users.
+ * The rank of users who follow nobody is spread evenly over all users. The ranks sum to 1.
+ *
+ * The computation is a power iteration over primitive double arrays. Each iteration pulls the
+ * ranks along the follower lists, and is split over a pool of threads, each on its own slice of
+ * users. The slices have about the same number of follows, so a few very popular users do not
+ * leave the other threads idle. It stops when the ranks change by less than the tolerance (as
+ * a sum of absolute changes over all users), or after maxIterations iterations.
+ *
+ * The graph is given as adjacency arrays, as in the PathSearch class: in[v] holds the followers
+ * of user v in its first inCounts[v] elements, and outCounts[u] is the number of followees of u.
+ */
+public class PageRank {
+
+    private double damping = 0.85;
+    private double tolerance = 1e-9;
+    private int maxIterations = 100;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int iterations;
+
+    /** Sets the damping factor: the probability of following a link rather than jumping to a random user. Returns this object. */
+    public PageRank damping(double damping) {
+        if (!(damping >= 0 && damping < 1)) {
+            throw new IllegalArgumentException("damping must be in [0, 1): " + damping);
+        }
+        this.damping = damping;
+        return this;
+    }
+
+    /** Sets the total change of the ranks in one iteration below which the iteration stops. Returns this object. */
+    public PageRank tolerance(double tolerance) {
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /** Sets the maximal number of iterations. Returns this object. */
+    public PageRank maxIterations(int maxIterations) {
+        this.maxIterations = Math.max(1, maxIterations);
+        return this;
+    }
+
+    /** Sets the number of threads that run each iteration. Returns this object. */
+    public PageRank threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /** Returns the number of iterations that the last compute took. */
+    public int getIterations() {
+        return this.iterations;
+    }
+
+    /**
+     * Returns the ranks of the first n users of the given graph. If the calling thread is
+     * interrupted, stops, and throws a CancellationException with the interrupt flag set.
+     */
+    public double[] compute(int[][] in, int[] inCounts, int[] outCounts, int n) {
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        // share[u] is what user u passes on to each of its followees: its rank over its number of followees.
+        double[] share = new double[n];
+        double[] nextShare = new double[n];
+        iterations = 0;
+        if (n == 0) {
+            return rank;
+        }
+        double dangling = 0;
+        for (int u = 0; u < n; u++) {
+            rank[u] = 1.0 / n;
+            if (outCounts[u] == 0) {
+                dangling += rank[u];
+            } else {
+                share[u] = rank[u] / outCounts[u];
+            }
+        }
+        int[] bounds = slices(inCounts, n);
+        int slices = bounds.length - 1;
+        ExecutorService pool = (slices > 1) ? Executors.newFixedThreadPool(slices) : null;
+        try {
+            List<Future<double[]>> futures = new ArrayList<>(slices);
+            while (iterations < maxIterations) {
+                double base = (1 - damping) / n + damping * dangling / n;
+                double[] from = share;
+                double[] to = next;
+                double[] toShare = nextShare;
+                double change = 0;
+                dangling = 0;
+                if (pool == null) {
+                    double[] sums = iterate(in, inCounts, outCounts, from, rank, to, toShare, base, 0, n);
+                    change = sums[0];
+                    dangling = sums[1];
+                } else {
+                    futures.clear();
+                    for (int s = 0; s < slices; s++) {
+                        int low = bounds[s];
+                        int high = bounds[s + 1];
+                        double[] current = rank;
+                        futures.add(pool.submit(() -> iterate(in, inCounts, outCounts, from, current, to, toShare, base, low, high)));
+                    }
+                    for (Future<double[]> future : futures) {
+                        double[] sums = future.get();
+                        change += sums[0];
+                        dangling += sums[1];
+                    }
+                }
+                next = rank;
+                rank = to;
+                nextShare = share;
+                share = toShare;
+                iterations++;
+                if (change < tolerance) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Partial ranks would look like converged ones, so there is no result.
+            Thread.currentThread().interrupt();
+            CancellationException cancelled = new CancellationException("interrupted after " + iterations + " iterations");
+            cancelled.initCause(e);
+            throw cancelled;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Computes the next ranks of users low (inclusive) to high (exclusive), and their shares for
+     * the iteration after. Returns the total change of their ranks, and the total rank of those
+     * who follow nobody.
+     */
+    private double[] iterate(int[][] in, int[] inCounts, int[] outCounts, double[] share, double[] rank,
+                             double[] next, double[] nextShare, double base, int low, int high) {
+        double change = 0;
+        double dangling = 0;
+        for (int v = low; v < high; v++) {
+            double sum = 0;
+            int[] followers = in[v];
+            for (int i = 0; i < inCounts[v]; i++) {
+                sum += share[followers[i]];
+            }
+            double r = base + damping * sum;
+            next[v] = r;
+            change += Math.abs(r - rank[v]);
+            if (outCounts[v] == 0) {
+                dangling += r;
+                nextShare[v] = 0;
+            } else {
+                nextShare[v] = r / outCounts[v];
+            }
+        }
+        return new double[] {change, dangling};
+    }
+
+    /**
+     * Splits the users into at most threads slices of consecutive users, with about the same
+     * number of followers (plus one per user) in each. Returns the slice bounds.
+     */
+    private int[] slices(int[] inCounts, int n) {
+        long total = n;
+        for (int v = 0; v < n; v++) {
+            total += inCounts[v];
+        }
+        int slices = (int) Math.max(1, Math.min(threads, total / 4096));
+        int[] bounds = new int[slices + 1];
+        long sum = 0;
+        int s = 1;
+        for (int v = 0; v < n && s < slices; v++) {
+            sum += inCounts[v] + 1;
+            if (sum * slices >= total * s) {
+                bounds[s++] = v + 1;
+            }
+        }
+        while (s <= slices) {
+            bounds[s++] = n;
+        }
+        return bounds;
+    }
+
+    /**
+     * Returns the ids of the k users with the highest ranks among the first n, from the highest
+     * rank to the lowest. Users with equal ranks are ordered by id. Takes O(n log k).
+     */
+    public static int[] top(double[] rank, int n, int k) {
+        k = Math.max(0, Math.min(k, n));
+        // A min-heap of the best k users so far, whose root is the worst of them.
+        int[] heap = new int[k];
+        int size = 0;
+        for (int v = 0; v < n && k > 0; v++) {
+            if (size < k) {
+                heap[size] = v;
+                siftUp(heap, size++, rank);
+            } else if (better(v, heap[0], rank)) {
+                heap[0] = v;
+                siftDown(heap, size, rank);
+            }
+        }
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i, rank);
+        }
+        return result;
+    }
+
+    /** Returns true if user a ranks before user b. */
+    private static boolean better(int a, int b, double[] rank) {
+        return rank[a] > rank[b] || (rank[a] == rank[b] && a < b);
+    }
+
+    private static void siftUp(int[] heap, int i, double[] rank) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(heap[parent], heap[i], rank)) {
+                return;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, double[] rank) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && better(heap[child], heap[child + 1], rank)) {
+                child++;
+            }
+            if (!better(heap[i], heap[child], rank)) {
+                return;
+            }
+            swap(heap, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int t = heap[i];
+        heap[i] = heap[j];
+        heap[j] = t;
+    }
+}
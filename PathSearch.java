@@ -0,0 +1,192 @@
+import java.util.Arrays;
+
+/**
+ * Breadth-first searches over the follow graph of a network, with scratch buffers that are
+ * allocated once and reused by every search. A search never clears its buffers: each one
+ * stamps the users it visits with a new search number, and a user counts as visited only if
+ * it carries the current number. A PathSearch is not thread-safe: the network lends each one
+ * to one query at a time (see ScratchPool).
+ *
+ * The graph is given as adjacency arrays: out[u] holds the followees of user u in its first
+ * outCounts[u] elements, and in[u] holds the followers of u in its first inCounts[u] elements.
+ */
+class PathSearch {
+
+    private final int[] forwardStamp;
+    private final int[] backwardStamp;
+    private final int[] forwardDist;
+    private final int[] backwardDist;
+    private final int[] forwardParent;
+    private final int[] backwardParent;
+    private final int[] forwardQueue;
+    private final int[] backwardQueue;
+    private int stamp;
+    /** The user where the two searches of the last successful shortestPath met, or -1. */
+    private int meeting = -1;
+
+    /** Creates the buffers for a network with the given capacity. */
+    PathSearch(int capacity) {
+        forwardStamp = new int[capacity];
+        backwardStamp = new int[capacity];
+        forwardDist = new int[capacity];
+        backwardDist = new int[capacity];
+        forwardParent = new int[capacity];
+        backwardParent = new int[capacity];
+        forwardQueue = new int[capacity];
+        backwardQueue = new int[capacity];
+    }
+
+    /** Starts a new search. On the (rare) wrap-around of the search number, clears the stamps. */
+    private void nextStamp() {
+        stamp++;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(forwardStamp, 0);
+            Arrays.fill(backwardStamp, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Finds a shortest follow path from user s to user t, of at most maxDepth follows, with a
+     * bidirectional search: one search follows the followees of s, the other the followers of t,
+     * and each step expands one whole level of the smaller frontier, until the two searches meet.
+     * Returns the length of the path, or -1 if there is none. The path itself can then be read
+     * with path.
+     */
+    int shortestPath(int[][] out, int[] outCounts, int[][] in, int[] inCounts, int s, int t, int maxDepth) {
+        nextStamp();
+        meeting = -1;
+        if (s == t) {
+            meeting = s;
+            forwardStamp[s] = stamp;
+            backwardStamp[s] = stamp;
+            forwardDist[s] = 0;
+            backwardDist[s] = 0;
+            forwardParent[s] = -1;
+            backwardParent[s] = -1;
+            return 0;
+        }
+        int fHead = 0;
+        int fTail = 0;
+        int bHead = 0;
+        int bTail = 0;
+        forwardQueue[fTail++] = s;
+        forwardStamp[s] = stamp;
+        forwardDist[s] = 0;
+        forwardParent[s] = -1;
+        backwardQueue[bTail++] = t;
+        backwardStamp[t] = stamp;
+        backwardDist[t] = 0;
+        backwardParent[t] = -1;
+        int fDepth = 0;
+        int bDepth = 0;
+        while (fHead < fTail && bHead < bTail && fDepth + bDepth < maxDepth) {
+            int best = Integer.MAX_VALUE;
+            if (fTail - fHead <= bTail - bHead) {
+                int levelEnd = fTail;
+                for (; fHead < levelEnd; fHead++) {
+                    int u = forwardQueue[fHead];
+                    int[] next = out[u];
+                    for (int i = 0; i < outCounts[u]; i++) {
+                        int v = next[i];
+                        if (forwardStamp[v] == stamp) {
+                            continue;
+                        }
+                        forwardStamp[v] = stamp;
+                        forwardDist[v] = fDepth + 1;
+                        forwardParent[v] = u;
+                        forwardQueue[fTail++] = v;
+                        if (backwardStamp[v] == stamp && fDepth + 1 + backwardDist[v] < best) {
+                            best = fDepth + 1 + backwardDist[v];
+                            meeting = v;
+                        }
+                    }
+                }
+                fDepth++;
+            } else {
+                int levelEnd = bTail;
+                for (; bHead < levelEnd; bHead++) {
+                    int u = backwardQueue[bHead];
+                    int[] previous = in[u];
+                    for (int i = 0; i < inCounts[u]; i++) {
+                        int v = previous[i];
+                        if (backwardStamp[v] == stamp) {
+                            continue;
+                        }
+                        backwardStamp[v] = stamp;
+                        backwardDist[v] = bDepth + 1;
+                        backwardParent[v] = u;
+                        backwardQueue[bTail++] = v;
+                        if (forwardStamp[v] == stamp && forwardDist[v] + bDepth + 1 < best) {
+                            best = forwardDist[v] + bDepth + 1;
+                            meeting = v;
+                        }
+                    }
+                }
+                bDepth++;
+            }
+            if (best != Integer.MAX_VALUE) {
+                return (best <= maxDepth) ? best : -1;
+            }
+        }
+        return -1;
+    }
+
+    /** Writes the ids of the users on the path found by the last successful shortestPath into the array, from s to t. */
+    void path(int[] ids) {
+        int length = forwardDist[meeting] + backwardDist[meeting];
+        for (int u = meeting, i = forwardDist[meeting]; u >= 0; u = forwardParent[u], i--) {
+            ids[i] = u;
+        }
+        for (int u = backwardParent[meeting], i = forwardDist[meeting] + 1; u >= 0 && i <= length; u = backwardParent[u], i++) {
+            ids[i] = u;
+        }
+    }
+
+    /**
+     * Computes the follow distances from user s to each of the target users, with one forward
+     * search that stops when all the targets were reached, or at maxDepth. Writes the distance of
+     * targets[i] to distances[i], or -1 if it was not reached.
+     */
+    void distances(int[][] out, int[] outCounts, int s, int[] targets, int[] distances, int maxDepth) {
+        nextStamp();
+        // Marks the targets with the backward stamp, so that reaching one is an O(1) check.
+        int remaining = 0;
+        for (int target : targets) {
+            if (target >= 0 && backwardStamp[target] != stamp) {
+                backwardStamp[target] = stamp;
+                remaining++;
+            }
+        }
+        int head = 0;
+        int tail = 0;
+        forwardQueue[tail++] = s;
+        forwardStamp[s] = stamp;
+        forwardDist[s] = 0;
+        if (backwardStamp[s] == stamp) {
+            remaining--;
+        }
+        while (head < tail && remaining > 0) {
+            int u = forwardQueue[head++];
+            if (forwardDist[u] >= maxDepth) {
+                break;
+            }
+            int[] next = out[u];
+            for (int i = 0; i < outCounts[u]; i++) {
+                int v = next[i];
+                if (forwardStamp[v] != stamp) {
+                    forwardStamp[v] = stamp;
+                    forwardDist[v] = forwardDist[u] + 1;
+                    forwardQueue[tail++] = v;
+                    if (backwardStamp[v] == stamp) {
+                        remaining--;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < targets.length; i++) {
+            int target = targets[i];
+            distances[i] = (target >= 0 && forwardStamp[target] == stamp) ? forwardDist[target] : -1;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+/** Tests the shortest path searches of the Network class, against a plain breadth-first search. */
+public class PathSearchTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the shortestPath, distance and distances methods...\n");
+
+        System.out.println("...Creating a chain Alex -> Orly -> Idan -> Keren, and a shortcut Alex -> Idan...");
+        Network net = new Network(10);
+        net.addUser("Alex");
+        net.addUser("Orly");
+        net.addUser("Idan");
+        net.addUser("Keren");
+        net.addUser("Neta");
+        net.addFollowee("Alex", "Orly");
+        net.addFollowee("Orly", "Idan");
+        net.addFollowee("Idan", "Keren");
+        System.out.println("Path from Alex to Keren: " + Arrays.toString(net.shortestPath("Alex", "Keren", 10)));
+        net.addFollowee("Alex", "Idan");
+        System.out.println("Path from Alex to Keren, with the shortcut: " + Arrays.toString(net.shortestPath("Alex", "Keren", 10)));
+        System.out.println("No path from Keren back to Alex: " + (net.shortestPath("Keren", "Alex", 10) == null));
+        System.out.println("No path to Neta, who nobody follows: " + (net.distance("Alex", "Neta", 10) == -1));
+        System.out.println("No path longer than maxDepth: " + (net.distance("Alex", "Keren", 1) == -1));
+        System.out.println("No path to an unknown user: " + (net.shortestPath("Alex", "Gil", 10) == null));
+
+        System.out.println("\n...Comparing with a breadth-first search on generated networks...");
+        Random random = new Random(35);
+        boolean lengths = true;
+        boolean paths = true;
+        boolean batches = true;
+        for (GraphGenerator.Model model : GraphGenerator.Model.values()) {
+            int users = 3000;
+            Network network = new GraphGenerator(model, users, 3, 35).newNetwork();
+            for (int round = 0; round < 100; round++) {
+                int s = random.nextInt(users);
+                int maxDepth = 1 + random.nextInt(8);
+                int[] expected = bfs(network, s, users, maxDepth);
+                String[] targets = new String[20];
+                for (int i = 0; i < targets.length; i++) {
+                    int t = random.nextInt(users);
+                    targets[i] = GraphGenerator.name(t);
+                    int distance = network.distance(GraphGenerator.name(s), targets[i], maxDepth);
+                    lengths &= distance == expected[t];
+                    String[] path = network.shortestPath(GraphGenerator.name(s), targets[i], maxDepth);
+                    paths &= (path == null) == (expected[t] < 0);
+                    if (path != null) {
+                        paths &= path.length == expected[t] + 1 && path[0].equals(GraphGenerator.name(s))
+                                && path[path.length - 1].equals(targets[i]);
+                        for (int j = 1; j < path.length; j++) {
+                            paths &= network.getUser(path[j - 1]).follows(path[j]);
+                        }
+                    }
+                }
+                int[] distances = network.distances(GraphGenerator.name(s), targets, maxDepth);
+                for (int i = 0; i < targets.length; i++) {
+                    batches &= distances[i] == expected[GraphGenerator.id(targets[i])];
+                }
+            }
+        }
+        System.out.println("distance matches: " + lengths);
+        System.out.println("shortestPath gives a shortest path of follows: " + paths);
+        System.out.println("distances matches: " + batches);
+
+        System.out.println("\nAll path search tests completed.");
+    }
+
+    /** Returns the distance from s to every user, or -1 for users that are more than maxDepth follows away. */
+    private static int[] bfs(Network network, int s, int users, int maxDepth) {
+        int[] distance = new int[users];
+        Arrays.fill(distance, -1);
+        distance[s] = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(s);
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            if (distance[u] == maxDepth) {
+                continue;
+            }
+            User user = network.getUser(GraphGenerator.name(u));
+            for (int i = 0; i < user.getfCount(); i++) {
+                int v = GraphGenerator.id(user.getfFollows()[i]);
+                if (distance[v] < 0) {
+                    distance[v] = distance[u] + 1;
+                    queue.add(v);
+                }
+            }
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,257 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Approximate follower counts in fixed memory, for nodes that see a stream of follow events but
+ * cannot hold the network. It is a Count-Min sketch: depth rows of width counters, where each
+ * user is hashed to one counter per row, a follow adds 1 to the user's counters and an unfollow
+ * subtracts 1. Other users may share a counter, so each counter can only overcount; the
+ * estimate is the smallest of the user's counters. With width = ceil(e / epsilon) and depth =
+ * ceil(ln(1 / delta)), an estimate exceeds the true count by more than epsilon times the total
+ * number of follows with probability at most delta.
+ *
+ * Since a sketch cannot list its users, it also keeps the candidates for the most followed
+ * users (heavy hitters): up to capacity names with their latest estimates. A user whose
+ * estimate rises above the lowest candidate replaces it.
+ *
+ * Sketches with the same width, depth and seed can be merged, by adding their counters, so that
+ * several nodes can each count their part of the stream, and one of them can combine the counts.
+ * The sketch does not know who follows whom, so it counts every event: a follow should only be
+ * sent if the follower did not already follow the followee. It is thread-safe.
+ */
+public class PopularitySketch implements FollowStream.Sink {
+
+    private final int width;
+    private final int depth;
+    private final long seed;
+    private final long[] counters;
+    private final int capacity;
+    /** The candidates for the most followed users, by lowercase name: their name and their latest estimate. */
+    private final HashMap<String, Candidate> candidates = new HashMap<>();
+    private Candidate lowest;
+    private long total;
+
+    private static final class Candidate {
+        final String name;
+        long estimate;
+
+        Candidate(String name, long estimate) {
+            this.name = name;
+            this.estimate = estimate;
+        }
+    }
+
+    /** Creates a sketch with the given number of counters, and room for capacity candidates. */
+    public PopularitySketch(int width, int depth, int capacity, long seed) {
+        if (width <= 0 || depth <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("width, depth and capacity must be positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.seed = seed;
+        this.capacity = capacity;
+        this.counters = new long[width * depth];
+    }
+
+    /**
+     * Returns a sketch whose estimates exceed the true counts by at most epsilon times the total
+     * number of follows, except with probability delta, and which keeps capacity candidates.
+     */
+    public static PopularitySketch withError(double epsilon, double delta, int capacity, long seed) {
+        if (!(epsilon > 0 && epsilon < 1 && delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("epsilon and delta must be in (0, 1)");
+        }
+        return new PopularitySketch((int) Math.ceil(Math.E / epsilon), (int) Math.ceil(Math.log(1 / delta)), capacity, seed);
+    }
+
+    /** Counts a follow (if follow is true) or an unfollow of the given user. */
+    public synchronized void update(String followee, boolean follow) {
+        String key = followee.toLowerCase();
+        long h = hash(key);
+        long delta = follow ? 1 : -1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int at = row * width + index(h, row);
+            counters[at] += delta;
+            estimate = Math.min(estimate, counters[at]);
+        }
+        total += delta;
+        offer(key, followee, estimate);
+    }
+
+    /** Counts every event of the batch. */
+    @Override
+    public int apply(FollowEvent[] batch, int size) {
+        for (int i = 0; i < size; i++) {
+            update(batch[i].getFollowee(), batch[i].isFollow());
+        }
+        return size;
+    }
+
+    /** Returns the estimated number of followers of the given user. It is never below the true number. */
+    public synchronized long estimate(String name) {
+        long h = hash(name.toLowerCase());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + index(h, row)]);
+        }
+        return estimate;
+    }
+
+    /** Returns the number of follows minus the number of unfollows counted so far. */
+    public synchronized long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Returns the largest amount by which an estimate exceeds the true count, except with
+     * probability e^-depth: e / width times the total number of follows.
+     */
+    public synchronized double errorBound() {
+        return Math.E / width * Math.max(0, total);
+    }
+
+    /** Returns the (approximately) most followed user, or null if no follow was counted. */
+    public String mostPopularUser() {
+        String[] top = topUsers(1);
+        return (top.length == 0) ? null : top[0];
+    }
+
+    /** Returns the (approximately) k most followed users, from the most, among the candidates. */
+    public synchronized String[] topUsers(int k) {
+        List<Candidate> sorted = new ArrayList<>(candidates.values());
+        sorted.removeIf(c -> c.estimate <= 0);
+        sorted.sort((a, b) -> (a.estimate != b.estimate) ? Long.compare(b.estimate, a.estimate) : a.name.compareTo(b.name));
+        String[] top = new String[Math.max(0, Math.min(k, sorted.size()))];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = sorted.get(i).name;
+        }
+        return top;
+    }
+
+    /**
+     * Adds the counts of the other sketch to this one. Both must have the same width, depth and
+     * seed. The candidates of both are estimated again from the merged counts.
+     */
+    public void merge(PopularitySketch other) {
+        if (other == this) {
+            throw new IllegalArgumentException("cannot merge a sketch into itself");
+        }
+        long[] otherCounters;
+        List<String> otherNames = new ArrayList<>();
+        long otherTotal;
+        synchronized (other) {
+            if (other.width != width || other.depth != depth || other.seed != seed) {
+                throw new IllegalArgumentException("sketches with different shapes or seeds cannot be merged");
+            }
+            otherCounters = other.counters.clone();
+            otherTotal = other.total;
+            for (Candidate c : other.candidates.values()) {
+                otherNames.add(c.name);
+            }
+        }
+        synchronized (this) {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] += otherCounters[i];
+            }
+            total += otherTotal;
+            List<String> names = new ArrayList<>(otherNames);
+            for (Candidate c : candidates.values()) {
+                names.add(c.name);
+            }
+            candidates.clear();
+            lowest = null;
+            for (String name : names) {
+                offer(name.toLowerCase(), name, estimate(name));
+            }
+        }
+    }
+
+    /** Writes the counters and candidates, so that another node can read and merge them. */
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(depth);
+        out.writeLong(seed);
+        out.writeInt(capacity);
+        out.writeLong(total);
+        for (long counter : counters) {
+            out.writeLong(counter);
+        }
+        out.writeInt(candidates.size());
+        for (Candidate c : candidates.values()) {
+            out.writeUTF(c.name);
+        }
+    }
+
+    /** Reads a sketch that was written by writeTo. */
+    public static PopularitySketch readFrom(DataInputStream in) throws IOException {
+        int width = in.readInt();
+        int depth = in.readInt();
+        long seed = in.readLong();
+        PopularitySketch result = new PopularitySketch(width, depth, in.readInt(), seed);
+        result.total = in.readLong();
+        for (int i = 0; i < result.counters.length; i++) {
+            result.counters[i] = in.readLong();
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            result.offer(name.toLowerCase(), name, result.estimate(name));
+        }
+        return result;
+    }
+
+    /** Updates the estimate of a candidate, or makes the user a candidate if its estimate is high enough. */
+    private void offer(String key, String name, long estimate) {
+        Candidate candidate = candidates.get(key);
+        if (candidate != null) {
+            candidate.estimate = estimate;
+            if (lowest != null && (candidate == lowest || estimate < lowest.estimate)) {
+                lowest = null;
+            }
+            return;
+        }
+        if (candidates.size() < capacity) {
+            candidates.put(key, new Candidate(name, estimate));
+            if (lowest != null && estimate < lowest.estimate) {
+                lowest = candidates.get(key);
+            }
+            return;
+        }
+        if (lowest == null) {
+            // Finds the lowest candidate again, which takes O(capacity), only when it changed.
+            for (Candidate c : candidates.values()) {
+                if (lowest == null || c.estimate < lowest.estimate) {
+                    lowest = c;
+                }
+            }
+        }
+        if (estimate > lowest.estimate) {
+            candidates.remove(lowest.name.toLowerCase());
+            candidates.put(key, new Candidate(name, estimate));
+            lowest = null;
+        }
+    }
+
+    /** Returns the counter of the user in the given row, from two independent hashes of its name (double hashing). */
+    private int index(long h, int row) {
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        return Math.floorMod(h1 + row * h2, width);
+    }
+
+    /** Hashes the name with FNV-1a, and mixes the result with the SplitMix64 finalizer. */
+    private long hash(String key) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
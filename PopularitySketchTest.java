@@ -0,0 +1,96 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/** Tests the PopularitySketch class, against exact follower counts of the same stream of follows. */
+public class PopularitySketchTest {
+    public static void main(String[] args) throws IOException {
+        System.out.println("...Testing the PopularitySketch class...\n");
+
+        System.out.println("...Counting follows of Orly and Idan, and an unfollow of Idan...");
+        PopularitySketch small = PopularitySketch.withError(0.01, 0.01, 10, 43);
+        small.update("Orly", true);
+        small.update("orly", true);
+        small.update("Idan", true);
+        small.update("Idan", false);
+        System.out.println("Estimate of Orly: " + small.estimate("Orly"));
+        System.out.println("Estimate of Idan: " + small.estimate("Idan"));
+        System.out.println("Total: " + small.getTotal());
+        System.out.println("Most popular user: " + small.mostPopularUser());
+        System.out.println("Idan, with no followers left, is not in the top users: " + (small.topUsers(10).length == 1));
+
+        System.out.println("\n...Counting a skewed stream of follows and unfollows...");
+        int users = 10000;
+        double epsilon = 0.001;
+        double delta = 0.01;
+        Random random = new Random(43);
+        long[] exact = new long[users];
+        PopularitySketch sketch = PopularitySketch.withError(epsilon, delta, 20, 43);
+        // The same stream, split between two nodes.
+        PopularitySketch first = PopularitySketch.withError(epsilon, delta, 20, 43);
+        PopularitySketch second = PopularitySketch.withError(epsilon, delta, 20, 43);
+        for (int i = 0; i < 300000; i++) {
+            // A few users get most of the follows.
+            int user = (int) (users * Math.pow(random.nextDouble(), 4));
+            boolean follow = exact[user] == 0 || random.nextInt(4) != 0;
+            exact[user] += follow ? 1 : -1;
+            sketch.update(GraphGenerator.name(user), follow);
+            (random.nextBoolean() ? first : second).update(GraphGenerator.name(user), follow);
+        }
+        boolean never = true;
+        int over = 0;
+        for (int u = 0; u < users; u++) {
+            long estimate = sketch.estimate(GraphGenerator.name(u));
+            never &= estimate >= exact[u];
+            if (estimate - exact[u] > sketch.errorBound()) {
+                over++;
+            }
+        }
+        System.out.println("No estimate is below the true count: " + never);
+        System.out.println("At most " + (int) (delta * 100) + "% of the estimates exceed the error bound: " + (over <= delta * users));
+
+        Integer[] byCount = new Integer[users];
+        for (int u = 0; u < users; u++) {
+            byCount[u] = u;
+        }
+        Arrays.sort(byCount, (a, b) -> Long.compare(exact[b], exact[a]));
+        String[] top = sketch.topUsers(5);
+        boolean same = top.length == 5;
+        for (int i = 0; i < top.length; i++) {
+            same &= top[i].equals(GraphGenerator.name(byCount[i]));
+        }
+        System.out.println("The top 5 users are the most followed: " + same);
+
+        System.out.println("\n...Merging the sketches of the two nodes...");
+        first.merge(second);
+        boolean merged = first.getTotal() == sketch.getTotal();
+        for (int u = 0; u < users; u++) {
+            merged &= first.estimate(GraphGenerator.name(u)) == sketch.estimate(GraphGenerator.name(u));
+        }
+        System.out.println("The merged sketch has the counts of one sketch of the whole stream: " + merged);
+        System.out.println("The merged sketch has the same top users: " + Arrays.equals(first.topUsers(5), top));
+        boolean rejected = false;
+        try {
+            first.merge(PopularitySketch.withError(epsilon, delta, 20, 44));
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        System.out.println("Merging a sketch with another seed is rejected: " + rejected);
+
+        System.out.println("\n...Writing the sketch, and reading it back...");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        PopularitySketch read = PopularitySketch.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        boolean copied = read.getTotal() == sketch.getTotal() && Arrays.equals(read.topUsers(5), top);
+        for (int u = 0; u < users; u++) {
+            copied &= read.estimate(GraphGenerator.name(u)) == sketch.estimate(GraphGenerator.name(u));
+        }
+        System.out.println("The sketch read back has the same counts and top users: " + copied);
+
+        System.out.println("\nAll PopularitySketch class tests completed.");
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Random;
+
+/**
+ * Compares the HTTP server with the binary server over loopback, on a generated network.
+ * Both servers run in this process and share one network. The benchmark makes the same
+ * follows checks in four ways: one HTTP request per check, HTTP /batch requests, one binary
+ * round trip per check, and pipelined binary requests. It reports the throughput of each,
+ * and the latency percentiles of the calls (a call is one check, one batch or one window).
+ *
+ * Usage: java ProtocolBenchmark [checks=20000] [window=100] [users=10000]
+ */
+public class ProtocolBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int checks = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+        int window = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+        int users = (args.length > 2) ? Integer.parseInt(args[2]) : 10000;
+
+        Network network = new Network(users);
+        new GraphGenerator(GraphGenerator.Model.PREFERENTIAL, users, User.maxfCount, 1).populate(network);
+        SharedNetwork shared = new SharedNetwork(network);
+        NetworkServer httpServer = new NetworkServer(shared, 0);
+        BinaryServer binaryServer = new BinaryServer(shared, 0);
+        httpServer.start();
+        binaryServer.start();
+
+        Random random = new Random(1);
+        String[] names = new String[2 * checks];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = GraphGenerator.name(random.nextInt(users));
+        }
+
+        try (BinaryClient client = new BinaryClient("localhost", binaryServer.getPort())) {
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String base = "http://localhost:" + httpServer.getPort();
+            System.out.printf("%-22s %12s %10s %10s%n", "mode", "checks/sec", "p50 us", "p99 us");
+            // Each mode runs twice, and only the second run is reported, so that all of them run warm.
+            for (int round = 0; round < 2; round++) {
+                boolean report = round == 1;
+                run("http", report, checks, 1, i -> httpCheck(http, base, names, i));
+                run("http batch", report, checks, window, i -> httpBatch(http, base, names, i, window));
+                run("binary", report, checks, 1, i -> client.follows(names[2 * i], names[2 * i + 1]));
+                run("binary pipelined", report, checks, window, i -> binaryWindow(client, names, i, window));
+            }
+        } finally {
+            httpServer.stop(0);
+            binaryServer.stop();
+        }
+    }
+
+    /** One call of a benchmark mode, which makes the checks from the given index on. */
+    private interface Call {
+        void run(int first) throws Exception;
+    }
+
+    private static void run(String mode, boolean report, int checks, int perCall, Call call) throws Exception {
+        LatencyHistogram latencies = new LatencyHistogram();
+        long start = System.nanoTime();
+        for (int i = 0; i + perCall <= checks; i += perCall) {
+            long begin = System.nanoTime();
+            call.run(i);
+            latencies.record(System.nanoTime() - begin);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (report) {
+            System.out.printf("%-22s %12.0f %10.1f %10.1f%n", mode, latencies.getCount() * perCall / seconds,
+                    latencies.percentile(50) / 1e3, latencies.percentile(99) / 1e3);
+        }
+    }
+
+    private static void httpCheck(HttpClient http, String base, String[] names, int i) throws IOException, InterruptedException {
+        URI uri = URI.create(base + "/follows?name=" + names[2 * i] + "&followee=" + names[2 * i + 1]);
+        http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void httpBatch(HttpClient http, String base, String[] names, int first, int window)
+            throws IOException, InterruptedException {
+        StringBuilder body = new StringBuilder();
+        for (int i = first; i < first + window; i++) {
+            body.append("{\"op\":\"follows\",\"name\":\"").append(names[2 * i])
+                .append("\",\"followee\":\"").append(names[2 * i + 1]).append("\"}\n");
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/batch"))
+            .POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+        http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void binaryWindow(BinaryClient client, String[] names, int first, int window) throws IOException {
+        for (int i = first; i < first + window; i++) {
+            client.send(Request.Op.FOLLOWS, names[2 * i], names[2 * i + 1]);
+        }
+        client.flush();
+        while (client.getPending() > 0) {
+            client.receive();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+/** Tests the reach estimates of the ReachSketches class, against breadth-first searches over the followers. */
+public class ReachSketchesTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the ReachSketches class...\n");
+
+        System.out.println("...Creating a chain Alex -> Orly -> Idan, where Keren follows Idan...");
+        Network net = new Network(10);
+        for (String name : new String[] {"Alex", "Orly", "Idan", "Keren"}) {
+            net.addUser(name);
+        }
+        net.addFollowee("Alex", "Orly");
+        net.addFollowee("Orly", "Idan");
+        boolean notEnabled = false;
+        try {
+            net.estimateReach("Idan", 1);
+        } catch (IllegalStateException e) {
+            notEnabled = true;
+        }
+        System.out.println("There are no estimates before the sketches are enabled: " + notEnabled);
+        net.enableReachSketches(12);
+        net.addFollowee("Keren", "Idan");
+        // Small sets are counted almost exactly.
+        System.out.println("Idan is reached by 2 users in 1 hop: " + (Math.round(net.estimateReach("Idan", 1)) == 2));
+        System.out.println("Idan is reached by 3 users in 2 hops: " + (Math.round(net.estimateReach("Idan", 2)) == 3));
+        net.removeFollowee("Alex", "Orly");
+        System.out.println("After Alex unfollows Orly, Idan is reached by 2 users in 2 hops: "
+                + (Math.round(net.estimateReach("Idan", 2)) == 2));
+        System.out.println("An unknown user is reached by no one: " + (net.estimateReach("Gil", 2) == 0));
+
+        // The relative error of an estimate is about 1.04 / sqrt(2^precision), so with 4 times as
+        // many registers it should be about half as large.
+        for (int precision : new int[] {8, 12}) {
+            double standardError = 1.04 / Math.sqrt(1 << precision);
+            System.out.println("\n...Estimating reach with precision " + precision + ", a standard error of "
+                    + String.format("%.1f%%", 100 * standardError) + "...");
+            Network network = new GraphGenerator(GraphGenerator.Model.UNIFORM, 20000, 10, 41).newNetwork();
+            network.enableReachSketches(precision);
+            Random random = new Random(41);
+            // Changes after the sketches were built, which they must follow.
+            for (int i = 0; i < 5000; i++) {
+                String follower = GraphGenerator.name(random.nextInt(20000));
+                String followee = GraphGenerator.name(random.nextInt(20000));
+                if (i % 3 == 0) {
+                    network.removeFollowee(follower, network.getUser(follower).getfFollows()[0]);
+                } else {
+                    network.addFollowee(follower, followee);
+                }
+            }
+            int estimates = 0;
+            int within = 0;
+            double sumOfErrors = 0;
+            for (int round = 0; round < 200; round++) {
+                int v = random.nextInt(20000);
+                for (int hops = 1; hops <= 3; hops++) {
+                    int exact = reach(network, v, hops);
+                    if (exact < 100) {
+                        continue;
+                    }
+                    double error = network.estimateReach(GraphGenerator.name(v), hops) / exact - 1;
+                    estimates++;
+                    sumOfErrors += error * error;
+                    if (Math.abs(error) <= 3 * standardError) {
+                        within++;
+                    }
+                }
+            }
+            double observed = Math.sqrt(sumOfErrors / estimates);
+            System.out.println("Estimates of at least 100 users: " + estimates);
+            System.out.println("Observed relative error: " + String.format("%.1f%%", 100 * observed));
+            System.out.println("At least 97% of the estimates are within 3 standard errors: " + (within >= 0.97 * estimates));
+            System.out.println("The observed error is below 1.5 standard errors: " + (observed < 1.5 * standardError));
+        }
+
+        System.out.println("\n...Enabling the sketches on an interrupted thread...");
+        Network interrupted = new GraphGenerator(GraphGenerator.Model.UNIFORM, 5000, 10, 41).newNetwork();
+        Thread.currentThread().interrupt();
+        boolean cancelled = false;
+        try {
+            interrupted.enableReachSketches(8);
+        } catch (CancellationException e) {
+            cancelled = true;
+        }
+        System.out.println("Enabling the sketches is cancelled: " + cancelled);
+        System.out.println("The interrupt flag is still set: " + Thread.interrupted());
+        boolean stillDisabled = false;
+        try {
+            interrupted.estimateReach(GraphGenerator.name(0), 1);
+        } catch (IllegalStateException e) {
+            stillDisabled = true;
+        }
+        System.out.println("The partly built sketches are not used: " + stillDisabled);
+        // 8192 users make 4 slices, which run on a pool.
+        ReachSketches sketches = new ReachSketches(8192, 8);
+        Thread.currentThread().interrupt();
+        cancelled = false;
+        try {
+            sketches.build(new int[8192][0], new int[8192], 8192, 4);
+        } catch (CancellationException e) {
+            cancelled = true;
+        }
+        System.out.println("Building on 4 threads is cancelled too: " + (cancelled && Thread.interrupted()));
+
+        System.out.println("\nAll ReachSketches class tests completed.");
+    }
+
+    /** Returns the number of users that reach v within the given number of follows, including v if it reaches itself. */
+    private static int reach(Network network, int v, int hops) {
+        int[] distance = new int[network.getUserCount()];
+        Arrays.fill(distance, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(v);
+        distance[v] = 0;
+        int count = 0;
+        boolean self = false;
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            if (distance[u] == hops) {
+                continue;
+            }
+            for (String name : network.getFollowers(GraphGenerator.name(u))) {
+                int w = GraphGenerator.id(name);
+                self |= w == v;
+                if (distance[w] < 0) {
+                    distance[w] = distance[u] + 1;
+                    count++;
+                    queue.add(w);
+                }
+            }
+        }
+        return self ? count + 1 : count;
+    }
+}
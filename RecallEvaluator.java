@@ -0,0 +1,65 @@
+import java.util.SplittableRandom;
+
+/**
+ * Measures how well the approximate (MinHash) recommendations of a network agree with the exact
+ * ones, on a generated network (see the GraphGenerator class). For a sample of users, it checks
+ * whether the user that recommendWhoToFollow recommends is among the top k approximate
+ * recommendations (recall at k), and times both. Users whose exact recommendation shares no
+ * followee with them are skipped, since that recommendation is only a fallback.
+ *
+ * Usage: java RecallEvaluator <uniform|preferential|community> <users> <followsPerUser> <seed> <bands> <rows> [samples] [k] [scoring]
+ * The scoring is the strategy of the exact recommendations (see the Scoring class), JACCARD by
+ * default, since that is the similarity that MinHash estimates.
+ */
+public class RecallEvaluator {
+
+    public static void main(String[] args) {
+        if (args.length < 6) {
+            System.err.println("Usage: java RecallEvaluator <uniform|preferential|community> <users> <followsPerUser> <seed> <bands> <rows> [samples] [k] [scoring]");
+            System.exit(2);
+        }
+        GraphGenerator.Model model = GraphGenerator.Model.valueOf(args[0].toUpperCase());
+        int userCount = Integer.parseInt(args[1]);
+        int followsPerUser = Integer.parseInt(args[2]);
+        long seed = Long.parseLong(args[3]);
+        int bands = Integer.parseInt(args[4]);
+        int rows = Integer.parseInt(args[5]);
+        int samples = (args.length > 6) ? Integer.parseInt(args[6]) : 1000;
+        int k = (args.length > 7) ? Integer.parseInt(args[7]) : 10;
+        Scoring scoring = (args.length > 8) ? Scoring.valueOf(args[8].toUpperCase()) : Scoring.JACCARD;
+
+        Network network = new GraphGenerator(model, userCount, followsPerUser, seed).newNetwork();
+        long start = System.nanoTime();
+        network.enableMinHash(bands, rows, seed);
+        System.out.printf("built signatures in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int evaluated = 0;
+        int found = 0;
+        long exactNanos = 0;
+        long approximateNanos = 0;
+        for (int s = 0; s < samples; s++) {
+            String name = GraphGenerator.name(random.nextInt(userCount));
+            long t0 = System.nanoTime();
+            String exact = network.recommendWhoToFollow(name, scoring);
+            long t1 = System.nanoTime();
+            String[] approximate = network.approximateRecommendations(name, k);
+            long t2 = System.nanoTime();
+            exactNanos += t1 - t0;
+            approximateNanos += t2 - t1;
+            if (exact == null || network.countMutualFollowees(name, exact) == 0) {
+                continue;
+            }
+            evaluated++;
+            for (String candidate : approximate) {
+                if (candidate.equals(exact)) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        System.out.printf("recall@%d = %.3f (%d of %d users), exact %.1f us/query, approximate %.1f us/query%n",
+                k, (evaluated == 0) ? 0.0 : (double) found / evaluated, found, evaluated,
+                exactNanos / 1e3 / samples, approximateNanos / 1e3 / samples);
+    }
+}
@@ -0,0 +1,191 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/** Tests the removeUser method of the Network class, against a network built again without the removed users. */
+public class RemoveUserTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the removeUser method...\n");
+
+        System.out.println("...Creating Alex, Orly and Idan, where Alex and Orly are friends, and Idan follows Orly...");
+        Network net = new Network(3);
+        net.addUser("Alex");
+        net.addUser("Orly");
+        net.addUser("Idan");
+        net.addFollowee("Alex", "Orly");
+        net.addFollowee("Orly", "Alex");
+        net.addFollowee("Idan", "Orly");
+        System.out.println(net);
+
+        System.out.println("\n...Removing Orly...");
+        int slot = net.getId("Orly");
+        System.out.println("Removing orly, in lowercase: " + net.removeUser("orly"));
+        System.out.println("Removing Orly again is rejected: " + !net.removeUser("Orly"));
+        System.out.println(net);
+        System.out.println("User count: " + net.getUserCount());
+        System.out.println("No follows are left: " + (net.getFollowCount() == 0 && net.getFriendPairCount() == 0));
+        System.out.println("Orly's slot has no weak component: " + (net.weakComponents()[slot] == -1));
+        System.out.println("Alex and Idan are two weak components: " + (net.weakComponentCount() == 2));
+
+        System.out.println("\n...Adding Keren, who gets Orly's free slot in the full network...");
+        System.out.println("Adding Keren: " + net.addUser("Keren"));
+        System.out.println("Keren has Orly's slot: " + (net.getId("Keren") == slot));
+        System.out.println("Adding Neta is rejected, as the network is full: " + !net.addUser("Neta"));
+        System.out.println("Keren has no followers: " + (net.followerCount("Keren") == 0));
+        net.addFollowee("Keren", "Alex");
+        System.out.println(net);
+
+        System.out.println("\n...Removing a user whose follows were changed directly on the User objects...");
+        Network changed = new Network(5);
+        changed.addUser("Alex");
+        changed.addUser("Orly");
+        changed.addUser("Idan");
+        changed.addFollowee("Alex", "Orly");
+        changed.addFollowee("Orly", "Alex");
+        changed.addFollowee("Idan", "Orly");
+        changed.getUser("Alex").removeFollowee("Orly");
+        changed.getUser("Orly").removeFollowee("Alex");
+        System.out.println("Removing Orly: " + changed.removeUser("Orly"));
+        System.out.println("Idan no longer follows Orly: " + !changed.getUser("Idan").follows("Orly"));
+        System.out.println("Alex has no followers left: " + (changed.followerCount("Alex") == 0));
+
+        System.out.println("\n...Removing most of the followers of a user, and compacting...");
+        Network big = new Network(100);
+        big.addUser("Alex");
+        for (int i = 0; i < 99; i++) {
+            big.addUser(GraphGenerator.name(i));
+            big.addFollowee(GraphGenerator.name(i), "Alex");
+        }
+        for (int i = 0; i < 95; i++) {
+            big.removeUser(GraphGenerator.name(i));
+        }
+        System.out.println("Compacting shrinks the followers of Alex: " + (big.compact(100) >= 1));
+        System.out.println("Nothing is left to shrink: " + (big.compact(100) == 0));
+        System.out.println("Alex still has 4 followers: " + (big.getFollowers("Alex").length == 4));
+
+        System.out.println("\n...Comparing random adds and removes of users and follows with a network built again...");
+        Random random = new Random(46);
+        Network network = new Network(60);
+        network.enableFastRemoval();
+        network.enableBloomFilters();
+        Map<String, Set<String>> follows = new LinkedHashMap<>();
+        int next = 0;
+        boolean results = true;
+        boolean same = true;
+        for (int step = 0; step < 20000; step++) {
+            List<String> live = new ArrayList<>(follows.keySet());
+            int op = random.nextInt(10);
+            if (op == 0 || live.size() < 3) {
+                String name = "U" + next++;
+                boolean added = network.addUser(name);
+                results &= added == (follows.size() < 60);
+                if (added) {
+                    follows.put(name, new LinkedHashSet<>());
+                }
+            } else if (op == 1) {
+                String name = live.get(random.nextInt(live.size()));
+                results &= network.removeUser(name) && network.getUser(name) == null;
+                follows.remove(name);
+                for (Set<String> followees : follows.values()) {
+                    followees.remove(name);
+                }
+            } else {
+                String name1 = live.get(random.nextInt(live.size()));
+                String name2 = live.get(random.nextInt(live.size()));
+                if (op < 7) {
+                    boolean expected = !name1.equals(name2) && !follows.get(name1).contains(name2)
+                            && follows.get(name1).size() < User.maxfCount;
+                    results &= network.addFollowee(name1, name2) == expected;
+                    if (expected) {
+                        follows.get(name1).add(name2);
+                    }
+                } else {
+                    results &= network.removeFollowee(name1, name2) == follows.get(name1).remove(name2);
+                }
+            }
+            if (step % 97 == 0) {
+                network.compact(7);
+            }
+            if (step % 500 == 0) {
+                same &= matches(network, follows);
+            }
+        }
+        same &= matches(network, follows);
+        System.out.println("Every add and remove gives the expected result: " + results);
+        System.out.println("The network matches a network built again: " + same);
+
+        System.out.println("\n...Timing the removal of a user with many followers, and of many followers of one user...");
+        // O(d) removals take about 8 times as long for 8 times as many follows (more, once they no longer fit
+        // in the cache), and O(d^2) ones about 64 times. A first run lets the JIT compile the code that is timed.
+        bestTime(25000, true);
+        bestTime(25000, false);
+        double hubRatio = bestTime(200000, true) / bestTime(25000, true);
+        double fanRatio = bestTime(200000, false) / bestTime(25000, false);
+        System.out.println("Removing a user with 8 times as many followers takes less than 32 times as long: " + (hubRatio < 32));
+        System.out.println("Removing 8 times as many followers of one user takes less than 32 times as long: " + (fanRatio < 32));
+
+        System.out.println("\nAll removeUser tests completed.");
+    }
+
+    /**
+     * Returns the best of a few timings, in nanoseconds, of removing a user followed by the given
+     * number of users (if hub is true), or of removing half of its followers (if hub is false).
+     */
+    private static double bestTime(int followers, boolean hub) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            Network network = new Network(followers + 1);
+            network.addUser("Hub");
+            for (int i = 0; i < followers; i++) {
+                network.addUser(GraphGenerator.name(i));
+                network.addFollowee(GraphGenerator.name(i), "Hub");
+            }
+            long start = System.nanoTime();
+            if (hub) {
+                network.removeUser("Hub");
+            } else {
+                for (int i = 0; i < followers; i += 2) {
+                    network.removeUser(GraphGenerator.name(i));
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /** Checks the network against a new network with the same users and follows. */
+    private static boolean matches(Network network, Map<String, Set<String>> follows) {
+        Network expected = new Network(follows.size());
+        for (String name : follows.keySet()) {
+            expected.addUser(name);
+        }
+        for (Map.Entry<String, Set<String>> entry : follows.entrySet()) {
+            for (String followee : entry.getValue()) {
+                expected.addFollowee(entry.getKey(), followee);
+            }
+        }
+        boolean ok = network.getUserCount() == follows.size();
+        ok &= network.getFollowCount() == expected.getFollowCount();
+        ok &= network.getFriendPairCount() == expected.getFriendPairCount();
+        ok &= network.weakComponentCount() == expected.weakComponentCount();
+        ok &= network.weakComponentSizes().equals(expected.weakComponentSizes());
+        ok &= network.strongComponentSizes().equals(expected.strongComponentSizes());
+        ok &= network.triangleCount() == expected.triangleCount();
+        // The users are in different slots, so in a different order.
+        ok &= new HashSet<>(Arrays.asList(network.toString().split("\n")))
+                .equals(new HashSet<>(Arrays.asList(expected.toString().split("\n"))));
+        ok &= network.mostFollowed(100).length == follows.size();
+        for (String name : follows.keySet()) {
+            ok &= network.followerCount(name) == expected.followerCount(name);
+            ok &= new HashSet<>(Arrays.asList(network.getFollowers(name)))
+                    .equals(new HashSet<>(Arrays.asList(expected.getFollowers(name))));
+        }
+        return ok;
+    }
+}
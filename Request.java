@@ -0,0 +1,204 @@
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * One operation on a network, as read from a JSON line such as
+ * {"op":"addFollowee","name":"Alice","followee":"Bob"}.
+ * The "name" field is the user that the operation is about, and "followee" is the second user
+ * of the two-user operations. An optional "id" field is echoed back with the result.
+ */
+public class Request {
+
+    /**
+     * The supported operations. Read-only operations never change the network. Each operation
+     * needs no user, one user (the "name" field), or two users ("name" and "followee").
+     */
+    public enum Op {
+        ADD_USER("addUser", false, 1),
+        ADD_FOLLOWEE("addFollowee", false, 2),
+        REMOVE_FOLLOWEE("removeFollowee", false, 2),
+        GET_USER("getUser", true, 1),
+        GET_FOLLOWEES("getFollowees", true, 1),
+        GET_FOLLOWERS("getFollowers", true, 1),
+        FOLLOWS("follows", true, 2),
+        IS_FRIEND_OF("isFriendOf", true, 2),
+        GET_FRIENDS("getFriends", true, 1),
+        MUTUAL_FOLLOWEES("mutualFollowees", true, 2),
+        SHORTEST_PATH("shortestPath", true, 2),
+        RECOMMEND_WHO_TO_FOLLOW("recommendWhoToFollow", true, 1),
+        MOST_POPULAR_USER("mostPopularUser", true, 0),
+        MOST_INFLUENTIAL_USER("mostInfluentialUser", true, 0),
+        REMOVE_USER("removeUser", false, 1);
+
+        private final String jsonName;
+        private final boolean readOnly;
+        private final int userCount;
+
+        Op(String jsonName, boolean readOnly, int userCount) {
+            this.jsonName = jsonName;
+            this.readOnly = readOnly;
+            this.userCount = userCount;
+        }
+
+        /** Returns the name of this operation in JSON requests. */
+        public String getJsonName() {
+            return this.jsonName;
+        }
+
+        public boolean isReadOnly() {
+            return this.readOnly;
+        }
+
+        /** Returns the number of users that this operation needs: 0, 1 (name) or 2 (name and followee). */
+        public int getUserCount() {
+            return this.userCount;
+        }
+
+        /** Returns the operation with the given JSON name, or null if there is none. */
+        public static Op fromJsonName(String jsonName) {
+            for (Op op : values()) {
+                if (op.jsonName.equals(jsonName)) {
+                    return op;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** The longest path that a shortestPath request searches for. */
+    public static final int MAX_PATH_DEPTH = 6;
+
+    private final Op op;
+    private final String id;
+    private final String name;
+    private final String followee;
+
+    public Request(Op op, String id, String name, String followee) {
+        this.op = op;
+        this.id = id;
+        this.name = name;
+        this.followee = followee;
+    }
+
+    /**
+     * Parses one JSON line into a request.
+     * Throws IllegalArgumentException if the line is not valid JSON, has an unknown operation,
+     * or lacks a field that its operation needs.
+     */
+    public static Request parse(String line) {
+        Map<String, Object> json = Json.parseObject(line);
+        Op op = Op.fromJsonName(String.valueOf(json.get("op")));
+        if (op == null) {
+            throw new IllegalArgumentException("unknown op: " + json.get("op"));
+        }
+        return of(op, string(json.get("id")), string(json.get("name")), string(json.get("followee")));
+    }
+
+    /**
+     * Returns a request, after checking that it has the users that its operation needs.
+     * Throws IllegalArgumentException, with the name of the field, if one of them is missing.
+     */
+    public static Request of(Op op, String id, String name, String followee) {
+        if (op.getUserCount() >= 1 && name == null) {
+            throw new IllegalArgumentException("missing field for " + op.getJsonName() + ": name");
+        }
+        if (op.getUserCount() >= 2 && followee == null) {
+            throw new IllegalArgumentException("missing field for " + op.getJsonName() + ": followee");
+        }
+        return new Request(op, id, name, followee);
+    }
+
+    private static String string(Object value) {
+        return (value == null) ? null : value.toString();
+    }
+
+    public Op getOp() {
+        return this.op;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public String getFollowee() {
+        return this.followee;
+    }
+
+    /**
+     * Runs this request on the given network, and returns its result: a Boolean for the
+     * operations that return true or false, and a String, a String array or null for the others.
+     * getUser returns the user's description, as in User.toString, or null if there is no such user.
+     * getFollowees, getFollowers, getFriends and mutualFollowees return String arrays, or null if there is no such user.
+     * shortestPath returns the names on a path of at most MAX_PATH_DEPTH follows, or null if there is none.
+     */
+    public Object apply(Network network) {
+        switch (op) {
+            case ADD_USER:
+                return network.addUser(name);
+            case ADD_FOLLOWEE:
+                return network.addFollowee(name, followee);
+            case REMOVE_FOLLOWEE:
+                return network.removeFollowee(name, followee);
+            case GET_USER: {
+                User user = network.getUser(name);
+                return (user == null) ? null : user.toString();
+            }
+            case GET_FOLLOWEES: {
+                User user = network.getUser(name);
+                return (user == null) ? null : Arrays.copyOf(user.getfFollows(), user.getfCount());
+            }
+            case GET_FOLLOWERS:
+                return network.getFollowers(name);
+            case FOLLOWS: {
+                User user = network.getUser(name);
+                return user != null && user.follows(followee);
+            }
+            case IS_FRIEND_OF:
+                return network.areFriends(name, followee);
+            case GET_FRIENDS:
+                return network.friendsOf(name);
+            case MUTUAL_FOLLOWEES:
+                return network.mutualFollowees(name, followee, Integer.MAX_VALUE);
+            case SHORTEST_PATH:
+                return network.shortestPath(name, followee, MAX_PATH_DEPTH);
+            case RECOMMEND_WHO_TO_FOLLOW:
+                return network.recommendWhoToFollow(name);
+            case MOST_POPULAR_USER:
+                return network.mostPopularUser();
+            case MOST_INFLUENTIAL_USER:
+                return network.mostInfluentialUser();
+            case REMOVE_USER:
+                return network.removeUser(name);
+            default:
+                return null;
+        }
+    }
+
+    /** Returns the JSON line that reports the given result of this request. */
+    public String resultLine(Object result) {
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        if (id != null) {
+            Json.quote(sb.append("\"id\":"), id).append(',');
+        }
+        Json.quote(sb.append("\"op\":"), op.getJsonName());
+        Json.write(sb.append(",\"result\":"), result);
+        return sb.append('}').toString();
+    }
+
+    /** Returns the JSON line that reports that this request failed with the given exception, in place of its result. */
+    public String errorLine(RuntimeException e) {
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        if (id != null) {
+            Json.quote(sb.append("\"id\":"), id).append(',');
+        }
+        Json.quote(sb.append("\"op\":"), op.getJsonName());
+        Json.quote(sb.append(",\"error\":"), e.toString());
+        return sb.append('}').toString();
+    }
+}
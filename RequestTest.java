@@ -0,0 +1,77 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+
+/** Tests the Request class, and how the LoadDriver and NetworkServer classes handle bad requests. */
+public class RequestTest {
+    public static void main(String[] args) throws Exception {
+        System.out.println("...Testing the Request class...\n");
+
+        System.out.println("...Parsing requests...");
+        Request request = Request.parse("{\"op\":\"follows\",\"id\":\"7\",\"name\":\"Alex\",\"followee\":\"Orly\"}");
+        System.out.println("Parsed: " + request.getOp() + " " + request.getName() + " " + request.getFollowee());
+        System.out.println("An operation without users needs no fields: "
+                + (Request.parse("{\"op\":\"mostPopularUser\"}").getOp() == Request.Op.MOST_POPULAR_USER));
+        System.out.println("Missing followee: " + error("{\"op\":\"follows\",\"name\":\"Alex\"}"));
+        System.out.println("Missing name: " + error("{\"op\":\"addUser\"}"));
+        System.out.println("Missing name of a two-user operation: " + error("{\"op\":\"shortestPath\",\"followee\":\"Orly\"}"));
+        System.out.println("Unknown operation: " + error("{\"op\":\"fly\"}"));
+
+        System.out.println("\n...Reporting a request that fails...");
+        // The constructor does not check the fields, so this request fails when it runs.
+        Request failing = new Request(Request.Op.FOLLOWS, "8", "Alex", null);
+        Network network = new Network(10);
+        network.addUser("Alex");
+        String line = null;
+        try {
+            failing.apply(network);
+        } catch (RuntimeException e) {
+            line = failing.errorLine(e);
+        }
+        System.out.println("Error line: " + line);
+
+        System.out.println("\n...Replaying a trace with a failing request...");
+        SharedNetwork shared = new SharedNetwork(new Network(10));
+        List<Request> trace = Arrays.asList(
+                Request.parse("{\"op\":\"addUser\",\"name\":\"Alex\"}"),
+                failing,
+                Request.parse("{\"op\":\"addUser\",\"name\":\"Orly\"}"),
+                Request.parse("{\"op\":\"addFollowee\",\"name\":\"Alex\",\"followee\":\"Orly\"}"));
+        LoadDriver.Result result = new LoadDriver(shared, 1, 0).run(trace, 0, trace.size());
+        System.out.println("One request failed: " + (result.errorCount == 1));
+        System.out.println("The requests after it still ran: " + shared.getNetwork().getUser("Alex").follows("Orly"));
+
+        System.out.println("\n...Sending bad requests to a server...");
+        NetworkServer server = new NetworkServer(new SharedNetwork(new Network(10)), 0);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + server.getPort();
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(base + "/follows?name=Alex")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            System.out.println("A request without followee gets status 400: " + (response.statusCode() == 400));
+            System.out.print("Its body: " + response.body());
+            String body = "{\"op\":\"addUser\",\"name\":\"Alex\"}\n{\"op\":\"follows\",\"name\":\"Alex\"}\n{\"op\":\"getUser\",\"name\":\"Alex\"}\n";
+            response = client.send(HttpRequest.newBuilder(URI.create(base + "/batch")).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            System.out.print("Batch results:\n" + response.body());
+        } finally {
+            server.stop(0);
+        }
+
+        System.out.println("\nAll Request class tests completed.");
+    }
+
+    /** Returns the message of the IllegalArgumentException that parsing the line throws, or "none". */
+    private static String error(String line) {
+        try {
+            Request.parse(line);
+            return "none";
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * The ways in which recommendWhoToFollow can score a candidate, from the followees that the
+ * candidate shares with the user (their mutual followees). Each strategy gives every mutual
+ * followee a weight, which is summed over the mutual followees, and then turns the sum into
+ * a score, using the number of followees of the user and of the candidate. The candidate with
+ * the highest score is recommended.
+ */
+public enum Scoring {
+
+    /** The number of mutual followees. This is the original behavior of recommendWhoToFollow. */
+    RAW,
+
+    /**
+     * The number of mutual followees, divided by the number of users that any of the two follow.
+     * Candidates who follow everyone share many followees with everyone, but score low.
+     */
+    JACCARD {
+        @Override
+        public double score(double sum, int userFollowees, int candidateFollowees) {
+            return sum / (userFollowees + candidateFollowees - sum);
+        }
+    },
+
+    /** The number of mutual followees, divided by the geometric mean of the numbers of followees of the two. */
+    COSINE {
+        @Override
+        public double score(double sum, int userFollowees, int candidateFollowees) {
+            return sum / Math.sqrt((double) userFollowees * candidateFollowees);
+        }
+    },
+
+    /**
+     * Adamic-Adar: every mutual followee counts 1 / log(its number of followers), so sharing a
+     * niche followee counts more than sharing a celebrity that everyone follows.
+     */
+    ADAMIC_ADAR {
+        @Override
+        public double weight(int followers) {
+            // Both users follow a mutual followee, so it has at least 2 followers.
+            return 1 / Math.log(followers);
+        }
+    };
+
+    /** Returns the weight of a mutual followee with the given number of followers. */
+    public double weight(int followers) {
+        return 1;
+    }
+
+    /** Returns the score of a candidate, from the sum of the weights of its mutual followees with the user. */
+    public double score(double sum, int userFollowees, int candidateFollowees) {
+        return sum;
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of scratch objects, such as the search buffers of PathSearch, whose size is
+ * the capacity of the network. A caller borrows one, uses it alone, and returns it:
+ *
+ *   T scratch = pool.borrow();
+ *   try { use(scratch); } finally { pool.release(scratch); }
+ *
+ * At most size objects are ever made, and only when they are first needed. When all of them
+ * are in use, borrow waits for one to be returned. So memory use does not depend on the number
+ * of threads, which matters when every request or connection runs on its own virtual thread.
+ */
+class ScratchPool<T> {
+
+    private final ArrayBlockingQueue<T> free;
+    private final Supplier<T> factory;
+    private final int size;
+    private final AtomicInteger created = new AtomicInteger();
+
+    /** Creates a pool of up to the given number of objects, made by the given factory. */
+    ScratchPool(int size, Supplier<T> factory) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be at least 1: " + size);
+        }
+        this.free = new ArrayBlockingQueue<>(size);
+        this.factory = factory;
+        this.size = size;
+    }
+
+    /**
+     * Returns an object that no other caller uses until it is released. If the calling thread
+     * is interrupted while it waits, throws a CancellationException with the interrupt flag set.
+     */
+    T borrow() {
+        T scratch = free.poll();
+        if (scratch != null) {
+            return scratch;
+        }
+        if (created.getAndIncrement() < size) {
+            try {
+                return factory.get();
+            } catch (RuntimeException | Error e) {
+                created.decrementAndGet();
+                throw e;
+            }
+        }
+        created.decrementAndGet();
+        try {
+            return free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CancellationException cancelled = new CancellationException("interrupted while waiting for scratch buffers");
+            cancelled.initCause(e);
+            throw cancelled;
+        }
+    }
+
+    /** Returns a borrowed object to the pool. */
+    void release(T scratch) {
+        free.offer(scratch);
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Lets many threads run requests on one network.
+ * Read-only requests run together under a shared lock, and requests that change the network
+ * run alone under an exclusive lock.
+ */
+public class SharedNetwork {
+
+    private final Network network;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SharedNetwork(Network network) {
+        this.network = network;
+    }
+
+    /** Returns the underlying network. Callers must not use it while other threads run requests. */
+    public Network getNetwork() {
+        return this.network;
+    }
+
+    /** Runs the given request under the right lock, and returns its result. */
+    public Object apply(Request request) {
+        ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
+        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+        if (request.getOp().isReadOnly()) {
+            readLock.lock();
+            try {
+                return request.apply(network);
+            } finally {
+                readLock.unlock();
+            }
+        }
+        writeLock.lock();
+        try {
+            return request.apply(network);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Runs the given changes to the network under the exclusive lock, so that readers see all of them or none. */
+    public void write(Consumer<Network> changes) {
+        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            changes.accept(network);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Runs the given query on the network under the shared lock, and returns its result. */
+    public <T> T read(Function<Network, T> query) {
+        ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return query.apply(network);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Compacts the network in the background: every periodMillis, the scheduler runs
+     * Network.compact on the next usersPerStep users, under the exclusive lock, so that readers
+     * wait for one short step at a time. Cancel the returned future to stop.
+     */
+    public ScheduledFuture<?> compactInBackground(ScheduledExecutorService scheduler, long periodMillis, int usersPerStep) {
+        return scheduler.scheduleWithFixedDelay(() -> write(n -> n.compact(usersPerStep)), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * Ranks users by how fast they are gaining followers, with exponential time decay: a follow
+ * that happened one half-life ago counts half as much as a follow now, and an unfollow counts
+ * as a negative follow.
+ *
+ * Instead of decaying every score as time passes, it uses forward decay: a follow at time t
+ * adds 2^((t - epoch) / halfLife) to the user's score, which is the decayed value times a
+ * factor that is the same for every user at any given time. So the order of the users never
+ * changes as time passes, only when a user gains or loses a follower, and only that user has
+ * to move. The decayed value at time now is the score divided by 2^((now - epoch) / halfLife).
+ * Since the factor grows without bound, the scores are kept as natural logarithms.
+ *
+ * The users with a score are kept in a sorted set, so the top k are found in O(k + log n), and
+ * users who never gained a follower are never touched.
+ */
+public class TrendingIndex {
+
+    private final long halfLife;
+    private final double rate;
+    private long epoch = Long.MIN_VALUE;
+    /** The logarithm of the score of each user, or negative infinity if it has none. */
+    private final double[] logScores;
+    private final TreeSet<Integer> ranked;
+
+    /** Creates an index for the given number of users, and the given half-life in milliseconds. */
+    public TrendingIndex(int capacity, long halfLife) {
+        if (halfLife <= 0) {
+            throw new IllegalArgumentException("half-life must be positive: " + halfLife);
+        }
+        this.halfLife = halfLife;
+        this.rate = Math.log(2) / halfLife;
+        this.logScores = new double[capacity];
+        Arrays.fill(logScores, Double.NEGATIVE_INFINITY);
+        this.ranked = new TreeSet<>((a, b) -> (logScores[a] != logScores[b]) ? Double.compare(logScores[b], logScores[a]) : Integer.compare(a, b));
+    }
+
+    public long getHalfLife() {
+        return this.halfLife;
+    }
+
+    /** Records that the user gained (if follow is true) or lost a follower at the given time, in milliseconds. */
+    public void record(int user, long timestamp, boolean follow) {
+        if (epoch == Long.MIN_VALUE) {
+            epoch = timestamp;
+        }
+        double x = rate * (timestamp - epoch);
+        double current = logScores[user];
+        double next;
+        if (follow) {
+            // log(e^current + e^x), without overflow.
+            next = (current == Double.NEGATIVE_INFINITY) ? x : Math.max(current, x) + Math.log1p(Math.exp(-Math.abs(current - x)));
+        } else {
+            // log(e^current - e^x), or no score if that is not positive.
+            next = (current > x) ? current + Math.log1p(-Math.exp(x - current)) : Double.NEGATIVE_INFINITY;
+        }
+        if (current != Double.NEGATIVE_INFINITY) {
+            ranked.remove(user);
+        }
+        logScores[user] = next;
+        if (next != Double.NEGATIVE_INFINITY) {
+            ranked.add(user);
+        }
+    }
+
+    /** Forgets the score of the user, so that its id can be given to a new user. */
+    public void remove(int user) {
+        if (logScores[user] != Double.NEGATIVE_INFINITY) {
+            ranked.remove(user);
+            logScores[user] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /** Returns the ids of the k users with the highest scores, from the highest. */
+    public int[] top(int k) {
+        int[] result = new int[Math.max(0, Math.min(k, ranked.size()))];
+        int i = 0;
+        for (int user : ranked) {
+            if (i == result.length) {
+                break;
+            }
+            result[i++] = user;
+        }
+        return result;
+    }
+
+    /** Returns the decayed score of the user at the given time: about the number of followers it gained in the last half-life / ln 2. */
+    public double score(int user, long now) {
+        if (logScores[user] == Double.NEGATIVE_INFINITY) {
+            return 0;
+        }
+        return Math.exp(logScores[user] - rate * (now - epoch));
+    }
+}
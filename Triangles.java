@@ -0,0 +1,291 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts triangles in a follow graph: triples of users in which every two are linked by a follow
+ * in at least one direction. Here, the neighbors of a user are the users that it follows or that
+ * follow it, and its degree is their number.
+ *
+ * The exact count orders the users by degree (and then by id), and keeps, for each user, only
+ * its neighbors that come after it in this order, as a sorted array. Every triangle is then
+ * found exactly once, from its first user u: as a neighbor w that u shares with one of its later
+ * neighbors v. Since a user keeps only its later neighbors, no user keeps more than about
+ * sqrt(2m) of them, where m is the number of links, so popular users do not make the count
+ * quadratic. The users are split into small chunks, which a pool of threads takes one at a time.
+ *
+ * The estimate samples wedges: pairs of neighbors of the same user, picked uniformly among all
+ * the wedges of the graph. The fraction of sampled wedges that are closed (whose two ends are
+ * also linked) estimates the fraction of all wedges that are closed, and every triangle closes
+ * three wedges. It needs no memory per link, and takes O(n + m) time for the degrees and then
+ * O(log n + log d) time per sample.
+ *
+ * The graph is given as adjacency arrays, as in the PathSearch class: out[u] holds the followees
+ * of user u, sorted, in its first outCounts[u] elements, and in[u] holds its followers in its
+ * first inCounts[u] elements.
+ */
+public class Triangles {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /** Sets the number of threads that count triangles. Returns this object. */
+    public Triangles threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /** An estimate of the number of triangles, with its error bound. */
+    public static final class Estimate {
+        /** The estimated number of triangles. */
+        public final double triangles;
+        /** The estimated fraction of wedges that are closed (the global clustering coefficient). */
+        public final double transitivity;
+        /**
+         * The estimated number of triangles is within this distance of the true number, with
+         * the requested confidence (from Hoeffding's inequality).
+         */
+        public final double errorBound;
+        /** The total number of wedges in the graph. */
+        public final long wedges;
+        public final int samples;
+        public final double confidence;
+
+        Estimate(double transitivity, double errorBound, long wedges, int samples, double confidence) {
+            this.transitivity = transitivity;
+            this.triangles = transitivity * wedges / 3;
+            this.errorBound = errorBound;
+            this.wedges = wedges;
+            this.samples = samples;
+            this.confidence = confidence;
+        }
+
+        public String toString() {
+            return String.format("%.1f triangles (+/- %.1f with confidence %.3f, transitivity %.5f, %d of %d wedges sampled)",
+                    triangles, errorBound, confidence, transitivity, samples, wedges);
+        }
+    }
+
+    /** Returns the number of neighbors of each of the first n users. */
+    public static int[] degrees(int[][] out, int[] outCounts, int[][] in, int[] inCounts, int n) {
+        int[] degrees = new int[n];
+        for (int u = 0; u < n; u++) {
+            int mutual = 0;
+            for (int i = 0; i < inCounts[u]; i++) {
+                if (follows(out, outCounts, u, in[u][i])) {
+                    mutual++;
+                }
+            }
+            degrees[u] = outCounts[u] + inCounts[u] - mutual;
+        }
+        return degrees;
+    }
+
+    /** Returns true if user u follows user v, by a binary search in the sorted followees of u. */
+    private static boolean follows(int[][] out, int[] outCounts, int u, int v) {
+        return outCounts[u] > 0 && Arrays.binarySearch(out[u], 0, outCounts[u], v) >= 0;
+    }
+
+    /** Returns true if user u comes before user v in the degree order. */
+    private static boolean before(int[] degrees, int u, int v) {
+        return degrees[u] < degrees[v] || (degrees[u] == degrees[v] && u < v);
+    }
+
+    /**
+     * Returns, for each of the first n users, the number of triangles that it is in. The total
+     * number of triangles is the sum of these numbers, divided by 3.
+     */
+    public long[] perUser(int[][] out, int[] outCounts, int[][] in, int[] inCounts, int n) {
+        int[] degrees = degrees(out, outCounts, in, inCounts, n);
+        int[][] later = new int[n][];
+        int[] laterCounts = new int[n];
+        int[] maxLater = new int[1];
+        run(n, (from, to) -> {
+            int max = 0;
+            for (int u = from; u < to; u++) {
+                int[] ids = new int[degrees[u]];
+                int count = 0;
+                for (int i = 0; i < outCounts[u]; i++) {
+                    if (before(degrees, u, out[u][i])) {
+                        ids[count++] = out[u][i];
+                    }
+                }
+                for (int i = 0; i < inCounts[u]; i++) {
+                    int v = in[u][i];
+                    if (before(degrees, u, v) && !follows(out, outCounts, u, v)) {
+                        ids[count++] = v;
+                    }
+                }
+                Arrays.sort(ids, 0, count);
+                later[u] = ids;
+                laterCounts[u] = count;
+                max = Math.max(max, count);
+            }
+            synchronized (maxLater) {
+                maxLater[0] = Math.max(maxLater[0], max);
+            }
+        });
+        AtomicLongArray triangles = new AtomicLongArray(n);
+        ThreadLocal<int[]> buffers = ThreadLocal.withInitial(() -> new int[maxLater[0]]);
+        run(n, (from, to) -> {
+            int[] common = buffers.get();
+            for (int u = from; u < to; u++) {
+                long found = 0;
+                for (int i = 0; i < laterCounts[u]; i++) {
+                    int v = later[u][i];
+                    int count = FollowSets.intersect(later[u], laterCounts[u], later[v], laterCounts[v], common, Integer.MAX_VALUE);
+                    if (count > 0) {
+                        found += count;
+                        triangles.addAndGet(v, count);
+                        for (int j = 0; j < count; j++) {
+                            triangles.incrementAndGet(common[j]);
+                        }
+                    }
+                }
+                if (found > 0) {
+                    triangles.addAndGet(u, found);
+                }
+            }
+        });
+        long[] result = new long[n];
+        for (int u = 0; u < n; u++) {
+            result[u] = triangles.get(u);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the local clustering coefficient of each user: the fraction of the pairs of its
+     * neighbors that are linked. It is 0 for users with fewer than two neighbors.
+     */
+    public static double[] clustering(long[] triangles, int[] degrees) {
+        double[] coefficients = new double[triangles.length];
+        for (int u = 0; u < triangles.length; u++) {
+            long pairs = (long) degrees[u] * (degrees[u] - 1) / 2;
+            coefficients[u] = (pairs == 0) ? 0 : (double) triangles[u] / pairs;
+        }
+        return coefficients;
+    }
+
+    /**
+     * Estimates the number of triangles among the first n users from the given number of
+     * sampled wedges. With probability at least confidence, the true number of triangles is
+     * within the error bound of the estimate. The same seed always gives the same estimate.
+     */
+    public static Estimate estimate(int[][] out, int[] outCounts, int[][] in, int[] inCounts, int n,
+                                    int samples, double confidence, long seed) {
+        if (samples <= 0 || !(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("need samples > 0 and confidence in (0, 1)");
+        }
+        int[] degrees = degrees(out, outCounts, in, inCounts, n);
+        // wedgesBefore[u] is the number of wedges centered on users before u, so a random wedge
+        // index can be mapped to its center by a binary search.
+        long[] wedgesBefore = new long[n + 1];
+        for (int u = 0; u < n; u++) {
+            wedgesBefore[u + 1] = wedgesBefore[u] + (long) degrees[u] * (degrees[u] - 1) / 2;
+        }
+        long wedges = wedgesBefore[n];
+        if (wedges == 0) {
+            return new Estimate(0, 0, 0, 0, confidence);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int closed = 0;
+        for (int s = 0; s < samples; s++) {
+            long wedge = random.nextLong(wedges);
+            int low = 0;
+            int high = n - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (wedgesBefore[mid] <= wedge) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            int center = low;
+            int a = randomNeighbor(out, outCounts, in, inCounts, center, random);
+            int b;
+            do {
+                b = randomNeighbor(out, outCounts, in, inCounts, center, random);
+            } while (b == a);
+            if (follows(out, outCounts, a, b) || follows(out, outCounts, b, a)) {
+                closed++;
+            }
+        }
+        double transitivity = (double) closed / samples;
+        double epsilon = Math.sqrt(Math.log(2 / (1 - confidence)) / (2.0 * samples));
+        return new Estimate(transitivity, epsilon * wedges / 3, wedges, samples, confidence);
+    }
+
+    /**
+     * Returns a neighbor of user u, picked uniformly. Picks among its followees and followers,
+     * and picks again if it picked a follower that u also follows, which it could also have
+     * picked as a followee.
+     */
+    private static int randomNeighbor(int[][] out, int[] outCounts, int[][] in, int[] inCounts, int u, SplittableRandom random) {
+        while (true) {
+            int i = random.nextInt(outCounts[u] + inCounts[u]);
+            if (i < outCounts[u]) {
+                return out[u][i];
+            }
+            int v = in[u][i - outCounts[u]];
+            if (!follows(out, outCounts, u, v)) {
+                return v;
+            }
+        }
+    }
+
+    private interface ChunkTask {
+        /** Handles the users from (inclusive) to to (exclusive). */
+        void run(int from, int to);
+    }
+
+    /**
+     * Runs the task over the first n users, in chunks, which the threads take one at a time.
+     * If the calling thread is interrupted, stops the threads after their current chunks, and
+     * throws a CancellationException with the interrupt flag set, since the counts are partial.
+     */
+    private void run(int n, ChunkTask task) {
+        int workers = (int) Math.max(1, Math.min(threads, ((long) n + CHUNK_SIZE - 1) / CHUNK_SIZE));
+        AtomicInteger nextChunk = new AtomicInteger();
+        Runnable worker = () -> {
+            int from;
+            while (!Thread.currentThread().isInterrupted() && (from = nextChunk.getAndAdd(CHUNK_SIZE)) < n) {
+                task.run(from, Math.min(n, from + CHUNK_SIZE));
+            }
+        };
+        if (workers == 1) {
+            worker.run();
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("interrupted while counting triangles");
+            }
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            Future<?>[] futures = new Future<?>[workers];
+            for (int w = 0; w < workers; w++) {
+                futures[w] = pool.submit(worker);
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CancellationException cancelled = new CancellationException("interrupted while counting triangles");
+            cancelled.initCause(e);
+            throw cancelled;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
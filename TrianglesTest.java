@@ -0,0 +1,130 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/** Tests the Triangles class, and the triangle queries of the Network class, against brute force counts. */
+public class TrianglesTest {
+    public static void main(String[] args) {
+        System.out.println("...Testing the Triangles class...\n");
+
+        System.out.println("...Creating Alex -> Orly -> Idan -> Alex, and Idan <-> Keren...");
+        Network net = new Network(10);
+        for (String name : new String[] {"Alex", "Orly", "Idan", "Keren"}) {
+            net.addUser(name);
+        }
+        net.addFollowee("Alex", "Orly");
+        net.addFollowee("Orly", "Idan");
+        net.addFollowee("Idan", "Alex");
+        net.addFollowee("Idan", "Keren");
+        net.addFollowee("Keren", "Idan");
+        System.out.println("Triangles: " + net.triangleCount());
+        System.out.println("Clustering coefficient of Alex: " + net.clusteringCoefficient("Alex"));
+        System.out.println("Clustering coefficient of Idan: " + net.clusteringCoefficient("Idan"));
+        System.out.println("\n...Adding Keren -> Alex, which closes a second triangle...");
+        net.addFollowee("Keren", "Alex");
+        System.out.println("Triangles: " + net.triangleCount());
+
+        System.out.println("\n...Comparing with brute force counts on random networks...");
+        Random random = new Random(38);
+        boolean totals = true;
+        boolean perUser = true;
+        boolean clustering = true;
+        for (int round = 0; round < 20; round++) {
+            int users = 150;
+            Network network = new Network(users, 20);
+            for (int i = 0; i < users; i++) {
+                network.addUser(GraphGenerator.name(i));
+            }
+            boolean[][] follows = new boolean[users][users];
+            for (int i = 0; i < 1500; i++) {
+                int u = random.nextInt(users);
+                int v = random.nextInt(users);
+                if (network.addFollowee(GraphGenerator.name(u), GraphGenerator.name(v))) {
+                    follows[u][v] = true;
+                }
+            }
+            long[] expected = new long[users];
+            long total = 0;
+            for (int a = 0; a < users; a++) {
+                for (int b = a + 1; b < users; b++) {
+                    for (int c = b + 1; c < users; c++) {
+                        if (linked(follows, a, b) && linked(follows, b, c) && linked(follows, a, c)) {
+                            expected[a]++;
+                            expected[b]++;
+                            expected[c]++;
+                            total++;
+                        }
+                    }
+                }
+            }
+            totals &= network.triangleCount() == total;
+            long[] counted = new Triangles().threads(1 + round % 4).perUser(out(follows), counts(follows, false),
+                    in(follows), counts(follows, true), users);
+            perUser &= Arrays.equals(counted, expected);
+            double[] coefficients = network.clusteringCoefficients();
+            for (int u = 0; u < users; u++) {
+                clustering &= Math.abs(coefficients[u] - network.clusteringCoefficient(GraphGenerator.name(u))) < 1e-12;
+            }
+        }
+        System.out.println("triangleCount matches: " + totals);
+        System.out.println("Triangles per user match, with 1 to 4 threads: " + perUser);
+        System.out.println("clusteringCoefficients matches clusteringCoefficient: " + clustering);
+
+        System.out.println("\n...Estimating the triangles of a generated network from sampled wedges...");
+        Network network = new GraphGenerator(GraphGenerator.Model.COMMUNITY, 20000, 10, 38).newNetwork();
+        long exact = network.triangleCount();
+        int within = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            Triangles.Estimate estimate = network.estimateTriangles(20000, 0.95, seed);
+            if (Math.abs(estimate.triangles - exact) <= estimate.errorBound) {
+                within++;
+            }
+        }
+        System.out.println("Exact count: " + exact + ", one estimate: " + network.estimateTriangles(20000, 0.95, 0));
+        // With 95% confidence, 20 estimates should rarely have more than 3 outside their bounds.
+        System.out.println("At least 17 of 20 estimates are within their error bounds: " + (within >= 17));
+
+        System.out.println("\nAll Triangles class tests completed.");
+    }
+
+    private static boolean linked(boolean[][] follows, int u, int v) {
+        return follows[u][v] || follows[v][u];
+    }
+
+    private static int[][] out(boolean[][] follows) {
+        int[][] lists = new int[follows.length][follows.length];
+        for (int u = 0; u < follows.length; u++) {
+            int count = 0;
+            for (int v = 0; v < follows.length; v++) {
+                if (follows[u][v]) {
+                    lists[u][count++] = v;
+                }
+            }
+        }
+        return lists;
+    }
+
+    private static int[][] in(boolean[][] follows) {
+        int[][] lists = new int[follows.length][follows.length];
+        for (int v = 0; v < follows.length; v++) {
+            int count = 0;
+            for (int u = 0; u < follows.length; u++) {
+                if (follows[u][v]) {
+                    lists[v][count++] = u;
+                }
+            }
+        }
+        return lists;
+    }
+
+    private static int[] counts(boolean[][] follows, boolean incoming) {
+        int[] counts = new int[follows.length];
+        for (int u = 0; u < follows.length; u++) {
+            for (int v = 0; v < follows.length; v++) {
+                if (incoming ? follows[v][u] : follows[u][v]) {
+                    counts[u]++;
+                }
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A disjoint-set (union-find) structure over the ids 0 to capacity - 1, which many threads may
+ * update at the same time without locks. Every set is a tree of parent links, with a root that
+ * represents the set. The links are updated with compare-and-set: find shortens the paths it
+ * walks by linking each visited id to its grandparent (path halving), and union links the root
+ * with the larger id under the root with the smaller id, so the root of a set is always its
+ * smallest id, and two threads can never link two roots under each other.
+ */
+public class UnionFind {
+
+    private final AtomicIntegerArray parent;
+
+    /** Creates a structure in which every id is in a set of its own. */
+    public UnionFind(int capacity) {
+        int[] initial = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            initial[i] = i;
+        }
+        this.parent = new AtomicIntegerArray(initial);
+    }
+
+    /** Returns the number of ids. */
+    public int capacity() {
+        return parent.length();
+    }
+
+    /** Returns the root of the set of the given id, which is the smallest id in the set. */
+    public int find(int x) {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x) {
+                return x;
+            }
+            int grandparent = parent.get(p);
+            if (p != grandparent) {
+                parent.compareAndSet(x, p, grandparent);
+            }
+            x = grandparent;
+        }
+    }
+
+    /** Merges the sets of the two ids. Returns true if they were in different sets. */
+    public boolean union(int a, int b) {
+        while (true) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA == rootB) {
+                return false;
+            }
+            int low = Math.min(rootA, rootB);
+            int high = Math.max(rootA, rootB);
+            // Fails if another thread linked high under some other root in the meantime, and then retries.
+            if (parent.compareAndSet(high, high, low)) {
+                return true;
+            }
+        }
+    }
+
+    /** Returns true if the two ids are in the same set. */
+    public boolean connected(int a, int b) {
+        while (true) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA == rootB) {
+                return true;
+            }
+            // rootA may have been linked under another root after it was found; if not, the sets are different.
+            if (parent.get(rootA) == rootA) {
+                return false;
+            }
+        }
+    }
+}
@@ -1,3 +1,6 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
 /** Represents a user in a social network. A user is characterized by a name,
  *  a list of user names that s/he follows, and the list's size. */
  public class User {
@@ -8,8 +11,25 @@
     private String[] follows;  
     private int fCount;        
 
+    // With fast removal, the slot of each (lowercase) followee name in the follows list, and
+    // the order in which the followees were added, so the list can be put back in that order.
+    private HashMap<String, Integer> slots;
+    private long[] addedAt;
+    private long addCount;
+    private volatile boolean outOfOrder;
+
+    // With a Bloom filter, the filter of the followee names, and the number of followees removed
+    // since it was built, whose bits are still set.
+    private volatile FolloweeFilter filter;
+    private int removedSinceFilter;
+
     /** Creates a user with an empty list of followees. */
     public User(String name) {
+        this(name, maxfCount);
+    }
+
+    /** Creates a user with an empty list of followees, which can hold up to the given number of followees. */
+    public User(String name, int maxfCount) {
         this.name = name;
         follows = new String[maxfCount]; 
         fCount = 0;                      
@@ -32,9 +52,92 @@
 
     /** Returns the follows array. */
     public String[] getfFollows() {
+        restoreOrder();
         return follows;
     }
 
+    /** Makes removeFollowee take O(1), by keeping the slot of each followee in a hash map. 
+     *  The follows list is still in the order in which the followees were added, whenever it is read. */
+    public void enableFastRemoval() {
+        if (slots != null) {
+            return;
+        }
+        slots = new HashMap<>();
+        addedAt = new long[follows.length];
+        for (int i = 0; i < fCount; i++) {
+            slots.put(follows[i].toLowerCase(), i);
+            addedAt[i] = addCount++;
+        }
+    }
+
+    /** Makes follows answer most questions about names that this user does not follow without 
+     *  scanning the follows list, by checking a Bloom filter of the followees first (see the FolloweeFilter class). */
+    public void enableBloomFilter() {
+        enableBloomFilter(new FolloweeFilter.Counts());
+    }
+
+    /** Enables a Bloom filter, as above, which counts its queries into the given counts, 
+     *  so that many users (such as those of one network) can share them. */
+    public void enableBloomFilter(FolloweeFilter.Counts counts) {
+        if (filter == null) {
+            filter = newFilter(counts);
+        }
+    }
+
+    /** Returns a new Bloom filter of the current followees. */
+    private FolloweeFilter newFilter(FolloweeFilter.Counts counts) {
+        FolloweeFilter result = new FolloweeFilter(follows.length, counts);
+        for (int i = 0; i < fCount; i++) {
+            result.add(follows[i].toLowerCase());
+        }
+        return result;
+    }
+
+    /** Returns the Bloom filter, after building it again if many followees were removed since it was built. 
+     *  The bits of removed followees only cause false positives, so it waits for an eighth of the list, 
+     *  but at least 4 removals, so that a short list is not rebuilt after every one. This makes the 
+     *  rebuilds take O(1) per removal. Readers who share the network may call it together. */
+    private FolloweeFilter filter() {
+        if (removedSinceFilter >= Math.max(4, fCount / 8)) {
+            synchronized (this) {
+                if (removedSinceFilter >= Math.max(4, fCount / 8)) {
+                    // A new filter, so that other readers never see a half-built one.
+                    filter = newFilter(filter.getCounts());
+                    removedSinceFilter = 0;
+                }
+            }
+        }
+        return filter;
+    }
+
+    /** After fast removals, puts the follows list back in the order in which the followees were added. 
+     *  Readers who share the network may call it together, so only one of them does it. */
+    private void restoreOrder() {
+        if (outOfOrder) {
+            synchronized (this) {
+                if (outOfOrder) {
+                    sortByAddOrder();
+                }
+            }
+        }
+    }
+
+    private void sortByAddOrder() {
+        // Each followee goes to the rank of its add number among all of them, in O(f log f).
+        long[] sorted = Arrays.copyOf(addedAt, fCount);
+        Arrays.sort(sorted);
+        String[] ordered = new String[fCount];
+        for (int i = 0; i < fCount; i++) {
+            ordered[Arrays.binarySearch(sorted, addedAt[i])] = follows[i];
+        }
+        System.arraycopy(ordered, 0, follows, 0, fCount);
+        System.arraycopy(sorted, 0, addedAt, 0, fCount);
+        for (int i = 0; i < fCount; i++) {
+            slots.put(follows[i].toLowerCase(), i);
+        }
+        outOfOrder = false;
+    }
+
     /** Returns the number of users that this user follows. */
     public int getfCount() {
         return fCount;
@@ -43,6 +146,20 @@
     /** If this user follows the given name, returns true; otherwise returns false. */
     public boolean follows(String name) {
         String name1 = name.toLowerCase();
+        if (filter == null) {
+            return contains(name1);
+        }
+        boolean maybe = filter().mightContain(name1);
+        boolean found = maybe && contains(name1);
+        filter.record(maybe, found);
+        return found;
+    }
+
+    /** Returns true if the given lowercase name is in the follows list. */
+    private boolean contains(String name1) {
+        if (slots != null) {
+            return slots.containsKey(name1);
+        }
         for (int i = 0; i < fCount; i++){
             if (follows[i].toLowerCase().equals(name1)){
                 return true;
@@ -54,17 +171,36 @@
      *  If this user already follows the given name, or if the follows list is full, does nothing and returns false; */
     public boolean addFollowee(String name) {
         String nameLower = name.toLowerCase();
-    
-        for (int i = 0; i < fCount; i++) {
-            if (follows[i].toLowerCase().equals(nameLower)) {
-                return false;
-            }
+        // With a Bloom filter, most new names skip the search for a duplicate.
+        if ((filter == null || filter().mightContain(nameLower)) && contains(nameLower)) {
+            return false;
         }
     
         if (fCount >= follows.length) {
             return false;
         }
     
+        return append(name, nameLower);
+    }
+
+    /** Adds the given name, which this user does not follow yet, without checking that. 
+     *  If the follows list is full, does nothing and returns false. */
+    boolean appendFollowee(String name) {
+        if (fCount >= follows.length) {
+            return false;
+        }
+        return append(name, (slots != null || filter != null) ? name.toLowerCase() : null);
+    }
+
+    /** Adds the name at the end of the follows list, and to the indexes that are enabled, by its lowercase key. */
+    private boolean append(String name, String key) {
+        if (slots != null) {
+            slots.put(key, fCount);
+            addedAt[fCount] = addCount++;
+        }
+        if (filter != null) {
+            filter.add(key);
+        }
         follows[fCount] = name;
         fCount++;
         return true;
@@ -77,6 +213,38 @@
             return false;
         }
         String name2 = name.toLowerCase();
+        if (filter != null && !filter().mightContain(name2)) {
+            return false;
+        }
+        if (!remove(name2)) {
+            return false;
+        }
+        if (filter != null) {
+            // The bits of the name stay set until the filter is built again.
+            removedSinceFilter++;
+        }
+        return true;
+    }
+
+    /** Removes the given lowercase name from the follows list. Returns false if it is not there. */
+    private boolean remove(String name2) {
+        if (slots != null) {
+            Integer slot = slots.remove(name2);
+            if (slot == null) {
+                return false;
+            }
+            // Moves the last followee into the freed slot, instead of shifting all the later ones.
+            int last = fCount - 1;
+            if (slot != last) {
+                follows[slot] = follows[last];
+                addedAt[slot] = addedAt[last];
+                slots.put(follows[slot].toLowerCase(), slot);
+                outOfOrder = true;
+            }
+            follows[last] = null;
+            fCount--;
+            return true;
+        }
         for (int i = 0; i < fCount; i++) {
             if (follows[i].toLowerCase().equals(name2)) {
                 for (int j = i; j < fCount - 1; j++) {
@@ -96,6 +264,8 @@
     /** Counts the number of users that both this user and the other user follow.
     /*  Notice: This is the size of the intersection of the two follows lists. */
     public int countMutual(User other) {
+        // Another reader may be putting the list back in order, which moves names around in it.
+        restoreOrder();
         int counter = 0;
 
         for (int i = 0; i < this.fCount; i++){
@@ -115,6 +285,7 @@
 
     /** Returns this user's name, and the names that s/he follows. */
     public String toString() {
+        restoreOrder();
         String ans = name + " -> ";
         for (int i = 0; i < fCount; i++) {
             ans = ans + follows[i] + " ";
@@ -0,0 +1,197 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the net number of new followers (follows minus unfollows) of each user in sliding time
+ * windows, such as the last hour, day and week. Each window is split into a ring of equal time
+ * buckets: a follow adds one to the bucket of its time, and as time passes, the ring moves on and
+ * the oldest bucket is cleared for reuse. The count of a window is the sum of its buckets, which
+ * is kept as a running total, so it is exact up to the width of one bucket: the oldest bucket
+ * may hold follows that are a bit older than the window.
+ *
+ * Only users who had a follow in the longest window have counters, so memory grows with the
+ * number of recently active users, not with the size of the network. The counters of users
+ * with no follow left in any window are dropped, in a sweep that runs at most once per bucket
+ * of the longest window.
+ */
+public class WindowedCounts {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private final long[] lengths;
+    private final int[] buckets;
+    private final long[] bucketWidths;
+    /** Where the ring of each window starts in the slots of a user. */
+    private final int[] offsets;
+    private final int slotCount;
+    private final int longest;
+    private final HashMap<Integer, Counters> active = new HashMap<>();
+    private long nextSweep = Long.MIN_VALUE;
+
+    /** The counters of one user. */
+    private final class Counters {
+        final int[] slots = new int[slotCount];
+        /** The number of the latest bucket in the ring of each window (time / bucket width). */
+        final long[] latest = new long[lengths.length];
+        final int[] sums = new int[lengths.length];
+
+        Counters(long timestamp) {
+            for (int w = 0; w < lengths.length; w++) {
+                latest[w] = Math.floorDiv(timestamp, bucketWidths[w]);
+            }
+        }
+    }
+
+    /**
+     * Creates counters for windows of the given lengths, in milliseconds, each split into the
+     * given number of buckets. The lengths must be multiples of the numbers of buckets.
+     */
+    public WindowedCounts(long[] lengths, int[] buckets) {
+        if (lengths.length == 0 || lengths.length != buckets.length) {
+            throw new IllegalArgumentException("need one number of buckets for each window");
+        }
+        this.lengths = lengths.clone();
+        this.buckets = buckets.clone();
+        this.bucketWidths = new long[lengths.length];
+        this.offsets = new int[lengths.length];
+        int slots = 0;
+        int longest = 0;
+        for (int w = 0; w < lengths.length; w++) {
+            if (buckets[w] <= 0 || lengths[w] <= 0 || lengths[w] % buckets[w] != 0) {
+                throw new IllegalArgumentException("window " + lengths[w] + " ms cannot be split into " + buckets[w] + " buckets");
+            }
+            bucketWidths[w] = lengths[w] / buckets[w];
+            offsets[w] = slots;
+            slots += buckets[w];
+            if (lengths[w] > lengths[longest]) {
+                longest = w;
+            }
+        }
+        this.slotCount = slots;
+        this.longest = longest;
+    }
+
+    /**
+     * Returns counters for the last hour (in 1-minute buckets), day (in 15-minute buckets) and
+     * week (in 1-hour buckets), which take 1.3 KB per active user.
+     */
+    public static WindowedCounts hourDayWeek() {
+        return new WindowedCounts(new long[] {HOUR, DAY, 7 * DAY}, new int[] {60, 96, 168});
+    }
+
+    /** Adds delta (1 for a follow, -1 for an unfollow) to the counts of the user, at the given time. */
+    public void record(int user, long timestamp, int delta) {
+        if (timestamp >= nextSweep) {
+            sweep(timestamp);
+            nextSweep = timestamp + bucketWidths[longest];
+        }
+        Counters counters = active.get(user);
+        if (counters == null) {
+            counters = new Counters(timestamp);
+            active.put(user, counters);
+        }
+        for (int w = 0; w < lengths.length; w++) {
+            long bucket = Math.floorDiv(timestamp, bucketWidths[w]);
+            advance(counters, w, bucket);
+            // A late event counts only if its bucket is still in the ring.
+            if (bucket > counters.latest[w] - buckets[w]) {
+                counters.slots[offsets[w] + (int) Math.floorMod(bucket, (long) buckets[w])] += delta;
+                counters.sums[w] += delta;
+            }
+        }
+    }
+
+    /** Moves the ring of the window up to the given bucket, clearing the buckets that it passes. */
+    private void advance(Counters counters, int w, long bucket) {
+        long steps = bucket - counters.latest[w];
+        if (steps <= 0) {
+            return;
+        }
+        if (steps >= buckets[w]) {
+            Arrays.fill(counters.slots, offsets[w], offsets[w] + buckets[w], 0);
+            counters.sums[w] = 0;
+        } else {
+            for (long b = counters.latest[w] + 1; b <= bucket; b++) {
+                int slot = offsets[w] + (int) Math.floorMod(b, (long) buckets[w]);
+                counters.sums[w] -= counters.slots[slot];
+                counters.slots[slot] = 0;
+            }
+        }
+        counters.latest[w] = bucket;
+    }
+
+    /** Forgets the counts of the user, so that its id can be given to a new user. */
+    public void remove(int user) {
+        active.remove(user);
+    }
+
+    /** Returns the count of the window, at the given time, without changing the counters. */
+    private int count(Counters counters, int w, long now) {
+        long steps = Math.floorDiv(now, bucketWidths[w]) - counters.latest[w];
+        if (steps <= 0) {
+            return counters.sums[w];
+        }
+        if (steps >= buckets[w]) {
+            return 0;
+        }
+        int sum = counters.sums[w];
+        for (long b = counters.latest[w] + 1; b <= counters.latest[w] + steps; b++) {
+            sum -= counters.slots[offsets[w] + (int) Math.floorMod(b, (long) buckets[w])];
+        }
+        return sum;
+    }
+
+    /** Drops the counters of the users with no follow left in any window. */
+    private void sweep(long now) {
+        active.values().removeIf(counters -> Math.floorDiv(now, bucketWidths[longest]) - counters.latest[longest] >= buckets[longest]);
+    }
+
+    /** Returns the index of the window of the given length. Throws IllegalArgumentException if there is none. */
+    private int window(long length) {
+        for (int w = 0; w < lengths.length; w++) {
+            if (lengths[w] == length) {
+                return w;
+            }
+        }
+        throw new IllegalArgumentException("no window of " + length + " ms");
+    }
+
+    /** Returns the net number of new followers of the user in the window of the given length that ends at the given time. */
+    public int count(int user, long window, long now) {
+        int w = window(window);
+        Counters counters = active.get(user);
+        return (counters == null) ? 0 : count(counters, w, now);
+    }
+
+    /**
+     * Returns the ids of the k active users with the most new followers in the window of the
+     * given length that ends at the given time, from the most, and by id when equal. Users with
+     * no new followers are left out. Takes O(a log a), where a is the number of active users.
+     */
+    public int[] top(int k, long window, long now) {
+        int w = window(window);
+        List<long[]> counts = new ArrayList<>();
+        for (Map.Entry<Integer, Counters> entry : active.entrySet()) {
+            int count = count(entry.getValue(), w, now);
+            if (count > 0) {
+                counts.add(new long[] {count, entry.getKey()});
+            }
+        }
+        counts.sort((a, b) -> (a[0] != b[0]) ? Long.compare(b[0], a[0]) : Long.compare(a[1], b[1]));
+        int[] result = new int[Math.max(0, Math.min(k, counts.size()))];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) counts.get(i)[1];
+        }
+        return result;
+    }
+
+    /** Returns the number of users that have counters. */
+    public int getActiveUserCount() {
+        return active.size();
+    }
+}
@@ -0,0 +1,125 @@
+package hw8;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the Network methods on seeded random networks.
+ * The degree skew is the exponent of a Zipf distribution that is used to pick followees:
+ * 0 picks them uniformly, and larger values concentrate the follows on a few popular users.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NetworkBenchmark {
+
+    @Param({"1000", "10000"})
+    public int userCount;
+
+    @Param({"10", "50"})
+    public int followListSize;
+
+    @Param({"0.0", "1.0"})
+    public double degreeSkew;
+
+    private Network network;
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setup() {
+        User.maxfCount = followListSize;
+        network = new Network(userCount);
+        names = new String[userCount];
+        for (int i = 0; i < userCount; i++) {
+            names[i] = "User" + i;
+            network.addUser(names[i]);
+        }
+        double[] cumulative = zipf(userCount, degreeSkew);
+        Random random = new Random(42);
+        for (int i = 0; i < userCount; i++) {
+            // Tries a bounded number of times, so that heavy skew cannot loop forever.
+            for (int tries = 0; tries < followListSize * 4; tries++) {
+                if (network.getUser(names[i]).getfCount() == followListSize) {
+                    break;
+                }
+                network.addFollowee(names[i], names[pick(cumulative, random.nextDouble())]);
+            }
+        }
+    }
+
+    /** Returns the cumulative distribution of a Zipf distribution with the given exponent. */
+    private static double[] zipf(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative, double u) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Returns the next user name, cycling through all the users. */
+    private String nextName() {
+        next = (next + 1) % names.length;
+        return names[next];
+    }
+
+    @Benchmark
+    public User getUser() {
+        return network.getUser(nextName());
+    }
+
+    /** The rejected path of addUser, which does the same lookup as a successful call. */
+    @Benchmark
+    public boolean addUserDuplicate() {
+        return network.addUser(nextName());
+    }
+
+    @Benchmark
+    public String recommendWhoToFollow() {
+        return network.recommendWhoToFollow(nextName());
+    }
+
+    @Benchmark
+    public String mostPopularUser() {
+        return network.mostPopularUser();
+    }
+
+    @Benchmark
+    public String networkToString() {
+        return network.toString();
+    }
+}
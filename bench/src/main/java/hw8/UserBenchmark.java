@@ -0,0 +1,102 @@
+package hw8;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the User methods on follow lists of different sizes.
+ * The mutating benchmarks undo their own change, so every invocation sees a list of the same
+ * size, with the name it removes at the same position.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UserBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int followListSize;
+
+    private User user;
+    private User other;
+    private String[] names;
+    private int head;
+    private String first;
+    private String middle;
+    private String absent;
+
+    @Setup
+    public void setup() {
+        // One spare slot, so that addThenRemoveFollowee can succeed.
+        User.maxfCount = followListSize + 1;
+        user = new User("Alice");
+        other = new User("Bob");
+        names = new String[followListSize];
+        for (int i = 0; i < followListSize; i++) {
+            names[i] = "User" + i;
+            user.addFollowee(names[i]);
+            // Half of Bob's follows overlap with Alice's.
+            other.addFollowee("User" + (i + followListSize / 2));
+        }
+        head = 0;
+        first = names[0];
+        middle = "User" + (followListSize / 2);
+        absent = "Nobody";
+    }
+
+    @Benchmark
+    public boolean followsHit() {
+        return user.follows(middle);
+    }
+
+    @Benchmark
+    public boolean followsMiss() {
+        return user.follows(absent);
+    }
+
+    /** The rejected path: scans the whole list and finds a duplicate at its start. */
+    @Benchmark
+    public boolean addFolloweeDuplicate() {
+        return user.addFollowee(first);
+    }
+
+    /** Appends a new followee, then removes it from the end of the list. */
+    @Benchmark
+    public boolean addThenRemoveFollowee() {
+        return user.addFollowee(absent) & user.removeFollowee(absent);
+    }
+
+    /**
+     * Removes the first followee (the worst case for shifting), then appends it again. This rotates
+     * the list by one, so the next invocation removes the followee that is now first.
+     */
+    @Benchmark
+    public boolean removeThenAddFollowee() {
+        String name = names[head];
+        head = (head + 1 == followListSize) ? 0 : head + 1;
+        return user.removeFollowee(name) & user.addFollowee(name);
+    }
+
+    @Benchmark
+    public int countMutual() {
+        return user.countMutual(other);
+    }
+
+    @Benchmark
+    public String userToString() {
+        return user.toString();
+    }
+}